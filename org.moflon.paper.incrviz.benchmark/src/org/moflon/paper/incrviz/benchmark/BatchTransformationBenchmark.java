@@ -0,0 +1,75 @@
+package org.moflon.paper.incrviz.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.EObject;
+import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the batch transformation of all corpus models of one type, i.e., {@link EMoflonDiagramTextProvider#modelToDot(EObject)}
+ * after {@link EMoflonDiagramTextProvider#clearCache()}.
+ * 
+ * One operation visualizes every model of the selected type once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 2, timeUnit = TimeUnit.SECONDS)
+public class BatchTransformationBenchmark
+{
+   @Param({ "sdm", "tggRule", "storyPattern", "pg", "tripleMatch" })
+   public String type;
+
+   private BenchmarkCorpus corpus;
+
+   private List<EObject> elements;
+
+   private EMoflonDiagramTextProvider diagramTextProvider;
+
+   @Setup(Level.Trial)
+   public void loadCorpus() throws IOException
+   {
+      final ProviderKind kind = ProviderKind.forType(type);
+      this.corpus = BenchmarkCorpus.load();
+      this.elements = corpus.getElements(kind);
+      if (elements.isEmpty())
+      {
+         throw new IllegalStateException("Corpus contains no models of type " + type);
+      }
+      this.diagramTextProvider = kind.createProvider();
+   }
+
+   @TearDown(Level.Trial)
+   public void unloadCorpus()
+   {
+      this.corpus.unload();
+   }
+
+   @Benchmark
+   public void modelToDot(final Blackhole blackhole)
+   {
+      for (final EObject element : elements)
+      {
+         diagramTextProvider.clearCache();
+         blackhole.consume(diagramTextProvider.modelToDot(element));
+      }
+   }
+}
@@ -0,0 +1,163 @@
+package org.moflon.paper.incrviz.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.EcoreResourceFactoryImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
+import org.moflon.tgg.language.LanguagePackage;
+import org.moflon.tgg.runtime.RuntimePackage;
+
+import SDMLanguage.SDMLanguagePackage;
+
+/**
+ * A fixed set of models that is loaded outside of a workbench.
+ * 
+ * The corpus is a folder (see {@link #CORPUS_PROPERTY}) that contains the same kinds of files that the evaluation
+ * collects from the workspace: regular .ecore files, protocol files and correspondence models. Each model element is
+ * assigned to the first of the {@link ProviderKind}s that accepts it.
+ */
+final class BenchmarkCorpus
+{
+   /**
+    * System property that holds the folder of the corpus
+    */
+   public static final String CORPUS_PROPERTY = "INCR_VIZ_BENCHMARK_CORPUS";
+
+   private static final String DEFAULT_CORPUS_FOLDER = "corpus";
+
+   private final ResourceSet resourceSet;
+
+   private final Map<ProviderKind, List<EObject>> elementsByKind;
+
+   private BenchmarkCorpus(final ResourceSet resourceSet, final Map<ProviderKind, List<EObject>> elementsByKind)
+   {
+      this.resourceSet = resourceSet;
+      this.elementsByKind = elementsByKind;
+   }
+
+   /**
+    * Loads the corpus from the folder given by {@link #CORPUS_PROPERTY} into a fresh resource set
+    */
+   public static BenchmarkCorpus load() throws IOException
+   {
+      final File folder = new File(System.getProperty(CORPUS_PROPERTY, DEFAULT_CORPUS_FOLDER));
+      if (!folder.isDirectory())
+      {
+         throw new IOException("Corpus folder does not exist: " + folder.getAbsolutePath());
+      }
+
+      final ResourceSet resourceSet = createResourceSet();
+      for (final Path modelFile : collectModelFiles(folder.toPath()))
+      {
+         resourceSet.getResource(URI.createFileURI(modelFile.toAbsolutePath().toString()), true);
+      }
+
+      final List<EMoflonDiagramTextProvider> classifiers = new ArrayList<>();
+      for (final ProviderKind kind : ProviderKind.values())
+      {
+         classifiers.add(kind.createProvider());
+      }
+
+      final Map<ProviderKind, List<EObject>> elementsByKind = new EnumMap<>(ProviderKind.class);
+      for (final ProviderKind kind : ProviderKind.values())
+      {
+         elementsByKind.put(kind, new ArrayList<>());
+      }
+      for (final Resource resource : new ArrayList<>(resourceSet.getResources()))
+      {
+         final TreeIterator<EObject> allContentsIterator = resource.getAllContents();
+         while (allContentsIterator.hasNext())
+         {
+            final EObject eObject = allContentsIterator.next();
+            for (final ProviderKind kind : ProviderKind.values())
+            {
+               if (classifiers.get(kind.ordinal()).isElementValidInput(eObject))
+               {
+                  elementsByKind.get(kind).add(eObject);
+                  break;
+               }
+            }
+         }
+      }
+      return new BenchmarkCorpus(resourceSet, elementsByKind);
+   }
+
+   /**
+    * Returns all elements of the corpus that are visualized by the given kind of provider
+    */
+   public List<EObject> getElements(final ProviderKind kind)
+   {
+      return Collections.unmodifiableList(elementsByKind.get(kind));
+   }
+
+   /**
+    * Unloads all resources of the corpus
+    */
+   public void unload()
+   {
+      resourceSet.getResources().forEach(Resource::unload);
+      resourceSet.getResources().clear();
+   }
+
+   private static ResourceSet createResourceSet()
+   {
+      // Accessing the package instances registers them in the global package registry
+      SDMLanguagePackage.eINSTANCE.getName();
+      LanguagePackage.eINSTANCE.getName();
+      RuntimePackage.eINSTANCE.getName();
+
+      final ResourceSet resourceSet = new ResourceSetImpl();
+      final Map<String, Object> extensionToFactoryMap = resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap();
+      extensionToFactoryMap.put("ecore", new EcoreResourceFactoryImpl());
+      extensionToFactoryMap.put("xmi", new XMIResourceFactoryImpl());
+      return resourceSet;
+   }
+
+   /**
+    * Returns the model files below the given folder, sorted by path so that all forks see the same order
+    */
+   private static List<Path> collectModelFiles(final Path folder) throws IOException
+   {
+      try (final Stream<Path> paths = Files.walk(folder))
+      {
+         return paths.filter(Files::isRegularFile).filter(BenchmarkCorpus::hasInterestingName).sorted().collect(Collectors.toList());
+      }
+   }
+
+   // Mirrors the file name filter of the evaluation
+   private static boolean hasInterestingName(final Path file)
+   {
+      final String name = file.getFileName().toString();
+      final boolean isEcoreFile = name.endsWith(".ecore") && !name.endsWith(".pre.ecore");
+      final boolean isProtocolFile = name.matches(".*protocol.*.xmi") || name.endsWith("corr.xmi");
+      return isEcoreFile || isProtocolFile;
+   }
+
+   public static void main(final String[] args) throws IOException
+   {
+      final BenchmarkCorpus corpus = load();
+      for (final ProviderKind kind : ProviderKind.values())
+      {
+         System.out.println(kind.getType() + ": " + corpus.getElements(kind).size());
+      }
+      System.out.println("Corpus folder: " + Paths.get(System.getProperty(CORPUS_PROPERTY, DEFAULT_CORPUS_FOLDER)).toAbsolutePath());
+   }
+}
@@ -0,0 +1,142 @@
+package org.moflon.paper.incrviz.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.change.util.ChangeRecorder;
+import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
+import org.moflon.paper.incrviz.EvaluationTGGRuleModifier;
+import org.moflon.tgg.language.TGGRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the re-visualization of a TGG rule after one of the changes of RQ2 (see {@link EvaluationTGGRuleModifier}).
+ * 
+ * Each iteration visualizes the next TGG rule of the corpus in round-robin order. Before the iteration, the rule is
+ * visualized from scratch and the change is applied while a {@link ChangeRecorder} records it; afterwards, the recorded
+ * change description is applied, which restores the rule including the order of its object variables (as in the
+ * evaluation). In 'incremental' mode, the provider propagates the change; in 'batch' mode, its cache is cleared first.
+ * 
+ * Incremental runs on small TGG rules often take less than a millisecond, where per-invocation fixtures of
+ * {@link Mode#AverageTime} would distort the result. Therefore, each iteration is a single shot, so that the fixtures
+ * run outside of the measurement, and the many iterations yield the distribution of the single-shot times.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 200)
+@Measurement(iterations = 1000)
+public class IncrementalTransformationBenchmark
+{
+   @Param({ "add", "rename", "remove" })
+   public String change;
+
+   @Param({ "incremental", "batch" })
+   public String mode;
+
+   private BenchmarkCorpus corpus;
+
+   private List<TGGRule> tggRules;
+
+   private EMoflonDiagramTextProvider diagramTextProvider;
+
+   private EvaluationTGGRuleModifier evaluationTGGRuleModifier;
+
+   private int indexOfNextRule;
+
+   private TGGRule tggRule;
+
+   private ChangeRecorder changeRecorder;
+
+   @Setup(Level.Trial)
+   public void loadCorpus() throws IOException
+   {
+      this.corpus = BenchmarkCorpus.load();
+      this.tggRules = new ArrayList<>();
+      for (final EObject element : corpus.getElements(ProviderKind.TGG_RULE))
+      {
+         final TGGRule tggRule = (TGGRule) element;
+         // Rename and remove need at least one object variable
+         if (!tggRule.getObjectVariable().isEmpty())
+         {
+            tggRules.add(tggRule);
+         }
+      }
+      if (tggRules.isEmpty())
+      {
+         throw new IllegalStateException("Corpus contains no TGG rules with object variables");
+      }
+
+      this.diagramTextProvider = ProviderKind.TGG_RULE.createProvider();
+      this.evaluationTGGRuleModifier = new EvaluationTGGRuleModifier(new Random(1));
+      this.indexOfNextRule = 0;
+   }
+
+   @TearDown(Level.Trial)
+   public void unloadCorpus()
+   {
+      this.corpus.unload();
+   }
+
+   @Setup(Level.Iteration)
+   public void applyChange()
+   {
+      this.tggRule = tggRules.get(indexOfNextRule);
+      this.indexOfNextRule = (indexOfNextRule + 1) % tggRules.size();
+
+      diagramTextProvider.clearCache();
+      diagramTextProvider.modelToDot(tggRule);
+
+      this.changeRecorder = new ChangeRecorder(tggRule);
+      switch (change)
+      {
+      case "add":
+         evaluationTGGRuleModifier.performChangeAddObjectVariables(tggRule, 3);
+         break;
+      case "rename":
+         evaluationTGGRuleModifier.performChangeObjectVariableNameChange(tggRule);
+         break;
+      case "remove":
+         evaluationTGGRuleModifier.performRemoveObjectVariable(tggRule, 2);
+         break;
+      default:
+         changeRecorder.dispose();
+         throw new IllegalArgumentException("Unknown change: " + change);
+      }
+   }
+
+   @TearDown(Level.Iteration)
+   public void undoChange()
+   {
+      changeRecorder.endRecording().apply();
+      changeRecorder.dispose();
+      changeRecorder = null;
+   }
+
+   @Benchmark
+   public String modelToDot()
+   {
+      if ("batch".equals(mode))
+      {
+         diagramTextProvider.clearCache();
+      }
+      return diagramTextProvider.modelToDot(tggRule);
+   }
+}
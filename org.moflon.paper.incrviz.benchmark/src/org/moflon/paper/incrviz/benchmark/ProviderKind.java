@@ -0,0 +1,63 @@
+package org.moflon.paper.incrviz.benchmark;
+
+import java.util.function.Supplier;
+
+import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
+import org.moflon.ide.visualization.dot.sdm.SDMDiagramTextProvider;
+import org.moflon.ide.visualization.dot.sdmpatterns.StoryPatternDiagramTextProvider;
+import org.moflon.ide.visualization.dot.tgg.TGGRuleDiagramTextProvider;
+import org.moflon.ide.visualization.dot.tgg.runtime.DotTGGRuntimeDiagramTextProvider;
+import org.moflon.ide.visualization.dot.tgg.runtimepatterns.DotTGGRuntimePatternsDiagramTextProvider;
+
+/**
+ * The five diagram text providers under benchmark.
+ * 
+ * The order of the constants is the order in which the evaluation tries the providers, so that each model is classified
+ * in the same way as in the results file.
+ */
+enum ProviderKind
+{
+   SDM("sdm", SDMDiagramTextProvider::new), //
+   TGG_RULE("tggRule", TGGRuleDiagramTextProvider::new), //
+   STORY_PATTERN("storyPattern", StoryPatternDiagramTextProvider::new), //
+   PRECEDENCE_GRAPH("pg", DotTGGRuntimeDiagramTextProvider::new), //
+   TRIPLE_MATCH("tripleMatch", DotTGGRuntimePatternsDiagramTextProvider::new);
+
+   private final String type;
+
+   private final Supplier<EMoflonDiagramTextProvider> factory;
+
+   private ProviderKind(final String type, final Supplier<EMoflonDiagramTextProvider> factory)
+   {
+      this.type = type;
+      this.factory = factory;
+   }
+
+   /**
+    * Returns the name of the type as it appears in the 'type' column of the results file
+    */
+   public String getType()
+   {
+      return type;
+   }
+
+   /**
+    * Creates a fresh provider with an empty cache
+    */
+   public EMoflonDiagramTextProvider createProvider()
+   {
+      return factory.get();
+   }
+
+   public static ProviderKind forType(final String type)
+   {
+      for (final ProviderKind kind : values())
+      {
+         if (kind.type.equals(type))
+         {
+            return kind;
+         }
+      }
+      throw new IllegalArgumentException("Unknown type of model: " + type);
+   }
+}
@@ -0,0 +1,183 @@
+package org.moflon.paper.incrviz;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Writer stage of the {@link EvaluationPipeline}: Hands the rows over to a writer thread, which formats them and appends
+ * them to the wrapped sinks, so that the measuring thread never waits for the disk.
+ * 
+ * The writer thread is started with the first row and terminates on {@link #close()} after it has written all pending
+ * rows. After a problem of the writer thread, the remaining rows are discarded, and every later invocation of
+ * {@link #append(ResultRow)} and {@link #close()} reports the problem.
+ */
+final class AsynchronousResultsSink implements ResultsSink
+{
+   private static final ResultRow END_OF_ROWS = new ResultRow(0);
+
+   private final Logger logger = Logger.getLogger(AsynchronousResultsSink.class);
+
+   private final List<ResultsSink> sinks;
+
+   private final BlockingQueue<ResultRow> pendingRows = new LinkedBlockingQueue<>();
+
+   private final AtomicLong idleTimeInNanos = new AtomicLong();
+
+   private volatile int maximumQueueDepth;
+
+   private volatile IOException failure;
+
+   private Thread writerThread;
+
+   AsynchronousResultsSink(final List<ResultsSink> sinks)
+   {
+      this.sinks = sinks;
+   }
+
+   @Override
+   public synchronized void append(final ResultRow row) throws IOException
+   {
+      throwIfFailed();
+      if (writerThread == null)
+      {
+         writerThread = new Thread(this::writeRows, "incrviz-results-writer");
+         writerThread.setDaemon(true);
+         writerThread.start();
+      }
+
+      pendingRows.add(row);
+      maximumQueueDepth = Math.max(maximumQueueDepth, pendingRows.size());
+   }
+
+   /**
+    * Waits until all pending rows are written and closes all wrapped sinks, even if closing one of them fails
+    */
+   @Override
+   public synchronized void close() throws IOException
+   {
+      if (writerThread != null)
+      {
+         pendingRows.add(END_OF_ROWS);
+         try
+         {
+            writerThread.join();
+         } catch (final InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the pending results", e);
+         } finally
+         {
+            writerThread = null;
+         }
+      }
+
+      IOException closeFailure = null;
+      for (final ResultsSink sink : sinks)
+      {
+         try
+         {
+            sink.close();
+         } catch (final IOException | RuntimeException e)
+         {
+            if (closeFailure == null)
+               closeFailure = new IOException("Closing the results failed", e);
+            else
+               closeFailure.addSuppressed(e);
+         }
+      }
+      final IOException writeFailure = failure;
+      if (writeFailure != null)
+      {
+         final IOException e = new IOException("Writing the results failed", writeFailure);
+         if (closeFailure != null)
+            e.addSuppressed(closeFailure);
+         throw e;
+      }
+      if (closeFailure != null)
+         throw closeFailure;
+   }
+
+   /**
+    * Returns the total time that the writer thread has waited for rows
+    */
+   public long getIdleTimeInNanos()
+   {
+      return idleTimeInNanos.get();
+   }
+
+   /**
+    * Returns the largest number of rows that have waited for the writer thread
+    */
+   public int getMaximumQueueDepth()
+   {
+      return maximumQueueDepth;
+   }
+
+   private void writeRows()
+   {
+      try
+      {
+         while (true)
+         {
+            final long idleStart = System.nanoTime();
+            final ResultRow row = pendingRows.take();
+            idleTimeInNanos.addAndGet(System.nanoTime() - idleStart);
+            if (row == END_OF_ROWS)
+               return;
+
+            for (final ResultsSink sink : sinks)
+            {
+               sink.append(row);
+            }
+         }
+      } catch (final IOException e)
+      {
+         fail(e);
+      } catch (final RuntimeException e)
+      {
+         fail(new IOException(e));
+      } catch (final InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private void fail(final IOException e)
+   {
+      logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+      EvaluationStatistics.getInstance().recordError();
+      failure = e;
+      // Keep draining the queue so that close() does not wait forever
+      drainUntilEnd();
+   }
+
+   private void drainUntilEnd()
+   {
+      try
+      {
+         while (pendingRows.take() != END_OF_ROWS)
+         {
+            // Discard the row
+         }
+      } catch (final InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * The failure is never cleared because the rows discarded after it are lost
+    */
+   private void throwIfFailed() throws IOException
+   {
+      final IOException e = failure;
+      if (e != null)
+         throw new IOException("Writing the results failed", e);
+   }
+}
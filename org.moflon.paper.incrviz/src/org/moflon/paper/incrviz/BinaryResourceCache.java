@@ -0,0 +1,384 @@
+package org.moflon.paper.incrviz;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+/**
+ * On-disk cache that stores loaded models in the EMF binary format (see {@link XMLResource#OPTION_BINARY}), so that
+ * repeated runs over the same workspace do not parse the XMI files again.
+ * 
+ * An entry is keyed by the workspace path of the source file and the SHA-1 hash of its content. Changing the source
+ * therefore changes the key, and the outdated entry of the file is deleted when the new entry is stored. The total size
+ * of the entries is capped: the least recently used entries are evicted first. The time of the last use of an entry is
+ * stored as its modification time, so that the order survives the run. Entries are written to a temporary file and moved
+ * into place afterwards, so that no reader sees a partial entry.
+ * 
+ * Resources with XMI IDs are not cached because the binary format does not preserve them. Their keys are remembered by
+ * an empty marker file instead. The key of each file is remembered together with the stamp of the file (see
+ * {@link ResultCache#stampOf(org.eclipse.core.resources.IFile)}), so that unchanged files are not hashed again. The
+ * remembered keys are written to disk on {@link #close()}.
+ * 
+ * All methods are thread-safe.
+ */
+final class BinaryResourceCache
+{
+   static final String FOLDER_NAME = "incrviz_cache";
+
+   private static final String ENTRY_SUFFIX = ".bin";
+
+   private static final String TEMPORARY_SUFFIX = ".tmp";
+
+   private static final String UNCACHEABLE_SUFFIX = ".nocache";
+
+   private static final String KEYS_FILE_NAME = "keys.tsv";
+
+   private static final String SEP = "\t";
+
+   private static final String KEY_SEP = "-";
+
+   private static final int BUFFER_SIZE_IN_BYTES = 1 << 16;
+
+   private final Logger logger = Logger.getLogger(BinaryResourceCache.class);
+
+   private final File folder;
+
+   private final long maximumSizeInBytes;
+
+   /**
+    * Sizes of the entries by key, ordered from the least to the most recently used entry
+    */
+   private final Map<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+
+   private long totalSizeInBytes;
+
+   /**
+    * Keys of the resources that cannot be cached
+    */
+   private final Set<String> uncacheableKeys = new HashSet<>();
+
+   /**
+    * Stamp and key of each file by workspace path
+    */
+   private final Map<String, String[]> stampsAndKeys = new HashMap<>();
+
+   BinaryResourceCache(final File folder, final long maximumSizeInBytes)
+   {
+      this.folder = folder;
+      this.maximumSizeInBytes = maximumSizeInBytes;
+      readEntries();
+   }
+
+   /**
+    * Returns the key of the file with the given workspace path if the file has been hashed with the given stamp before, or
+    * returns null otherwise
+    */
+   public synchronized String getRememberedKey(final String path, final String stamp)
+   {
+      final String[] stampAndKey = stampsAndKeys.get(path);
+      return stampAndKey != null && stampAndKey[0].equals(stamp) ? stampAndKey[1] : null;
+   }
+
+   /**
+    * Returns the key of the given content of the file with the given workspace path and remembers it for the given stamp
+    */
+   public String computeKey(final String path, final String stamp, final InputStream content) throws IOException
+   {
+      final MessageDigest contentDigest = createDigest();
+      final byte[] buffer = new byte[BUFFER_SIZE_IN_BYTES];
+      int readBytes;
+      while ((readBytes = content.read(buffer)) >= 0)
+      {
+         contentDigest.update(buffer, 0, readBytes);
+      }
+      final String key = hashOf(path) + KEY_SEP + toHex(contentDigest.digest());
+      synchronized (this)
+      {
+         stampsAndKeys.put(path, new String[] { stamp, key });
+      }
+      return key;
+   }
+
+   /**
+    * Returns whether the resource with the given key may be stored, i.e., it is not known to have XMI IDs
+    */
+   public synchronized boolean isCacheable(final String key)
+   {
+      return !uncacheableKeys.contains(key);
+   }
+
+   /**
+    * Returns the entry with the given key and marks it as most recently used, or returns null if there is no such entry
+    */
+   public synchronized File lookUp(final String key)
+   {
+      // get() (unlike containsKey()) moves the entry to the end of the access order
+      final Long size = entrySizes.get(key);
+      if (size == null)
+         return null;
+
+      final File entryFile = getEntryFile(key);
+      if (!entryFile.isFile())
+      {
+         entrySizes.remove(key);
+         totalSizeInBytes -= size;
+         return null;
+      }
+      entryFile.setLastModified(System.currentTimeMillis());
+      return entryFile;
+   }
+
+   /**
+    * Stores the given loaded resource under the given key, replaces the previous entry of the same source file and evicts
+    * the least recently used entries if the cache is too large afterwards
+    */
+   public void store(final String key, final XMLResource resource)
+   {
+      if (hasXmiIds(resource))
+      {
+         markAsUncacheable(key);
+         return;
+      }
+
+      try
+      {
+         folder.mkdirs();
+         final File temporaryFile = File.createTempFile(key, TEMPORARY_SUFFIX, folder);
+         try
+         {
+            try (final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE_IN_BYTES))
+            {
+               resource.save(outputStream, Collections.singletonMap(XMLResource.OPTION_BINARY, Boolean.TRUE));
+            }
+            synchronized (this)
+            {
+               Files.move(temporaryFile.toPath(), getEntryFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+               removeOutdatedEntries(key);
+               addEntry(key, getEntryFile(key).length());
+               evictLeastRecentlyUsedEntries();
+            }
+         } finally
+         {
+            Files.deleteIfExists(temporaryFile.toPath());
+         }
+      } catch (final IOException | RuntimeException e)
+      {
+         logger.warn("Cannot store " + resource.getURI() + " in the binary resource cache: " + e);
+      }
+   }
+
+   /**
+    * Deletes the entry with the given key, e.g., because it cannot be read
+    */
+   public synchronized void invalidate(final String key)
+   {
+      final Long size = entrySizes.remove(key);
+      if (size != null)
+      {
+         totalSizeInBytes -= size;
+      }
+      getEntryFile(key).delete();
+   }
+
+   /**
+    * Writes the remembered keys of all files that have an entry or are uncacheable to disk
+    */
+   public synchronized void close()
+   {
+      final File keysFile = new File(folder, KEYS_FILE_NAME);
+      try
+      {
+         folder.mkdirs();
+         final File temporaryFile = new File(folder, KEYS_FILE_NAME + TEMPORARY_SUFFIX);
+         try (final BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8))
+         {
+            for (final Map.Entry<String, String[]> pathAndStampAndKey : stampsAndKeys.entrySet())
+            {
+               final String key = pathAndStampAndKey.getValue()[1];
+               if (!entrySizes.containsKey(key) && !uncacheableKeys.contains(key))
+                  continue;
+
+               writer.write(pathAndStampAndKey.getKey() + SEP + pathAndStampAndKey.getValue()[0] + SEP + key);
+               writer.newLine();
+            }
+         }
+         Files.move(temporaryFile.toPath(), keysFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } catch (final IOException e)
+      {
+         logger.warn("Cannot write " + keysFile + ": " + e);
+      }
+   }
+
+   /**
+    * Remembers that the resource with the given key cannot be cached and deletes the outdated entries of its source file
+    */
+   private synchronized void markAsUncacheable(final String key)
+   {
+      if (!uncacheableKeys.add(key))
+         return;
+
+      removeOutdatedEntries(key);
+      try
+      {
+         folder.mkdirs();
+         new File(folder, key + UNCACHEABLE_SUFFIX).createNewFile();
+      } catch (final IOException e)
+      {
+         logger.warn("Cannot mark " + key + " as uncacheable: " + e);
+      }
+   }
+
+   /**
+    * Collects the entries, markers and keys of previous runs and deletes temporary files that have been left behind
+    */
+   private synchronized void readEntries()
+   {
+      final File[] files = folder.listFiles();
+      if (files == null)
+         return;
+
+      Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+      for (final File file : files)
+      {
+         final String name = file.getName();
+         if (name.endsWith(ENTRY_SUFFIX))
+         {
+            addEntry(name.substring(0, name.length() - ENTRY_SUFFIX.length()), file.length());
+         } else if (name.endsWith(UNCACHEABLE_SUFFIX))
+         {
+            uncacheableKeys.add(name.substring(0, name.length() - UNCACHEABLE_SUFFIX.length()));
+         } else if (name.endsWith(TEMPORARY_SUFFIX))
+         {
+            file.delete();
+         }
+      }
+      evictLeastRecentlyUsedEntries();
+      readKeys(new File(folder, KEYS_FILE_NAME));
+   }
+
+   private void readKeys(final File keysFile)
+   {
+      if (!keysFile.isFile())
+         return;
+
+      try (final BufferedReader reader = Files.newBufferedReader(keysFile.toPath(), StandardCharsets.UTF_8))
+      {
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            final String[] fields = line.split(SEP);
+            if (fields.length == 3)
+               stampsAndKeys.put(fields[0], new String[] { fields[1], fields[2] });
+         }
+      } catch (final IOException e)
+      {
+         logger.warn("Cannot read " + keysFile + ": " + e);
+      }
+   }
+
+   private void addEntry(final String key, final long size)
+   {
+      final Long previousSize = entrySizes.put(key, size);
+      totalSizeInBytes += size - (previousSize != null ? previousSize : 0);
+   }
+
+   /**
+    * Deletes all entries and markers of the source file of the given key except those with the given key
+    */
+   private void removeOutdatedEntries(final String key)
+   {
+      final String pathPrefix = key.substring(0, key.indexOf(KEY_SEP) + 1);
+      for (final Iterator<String> iterator = uncacheableKeys.iterator(); iterator.hasNext();)
+      {
+         final String uncacheableKey = iterator.next();
+         if (uncacheableKey.startsWith(pathPrefix) && !uncacheableKey.equals(key))
+         {
+            iterator.remove();
+            new File(folder, uncacheableKey + UNCACHEABLE_SUFFIX).delete();
+         }
+      }
+      for (final Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator(); iterator.hasNext();)
+      {
+         final Map.Entry<String, Long> entry = iterator.next();
+         if (entry.getKey().startsWith(pathPrefix) && !entry.getKey().equals(key))
+         {
+            iterator.remove();
+            totalSizeInBytes -= entry.getValue();
+            getEntryFile(entry.getKey()).delete();
+         }
+      }
+   }
+
+   private void evictLeastRecentlyUsedEntries()
+   {
+      for (final Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator(); iterator.hasNext()
+            && totalSizeInBytes > maximumSizeInBytes;)
+      {
+         final Map.Entry<String, Long> entry = iterator.next();
+         iterator.remove();
+         totalSizeInBytes -= entry.getValue();
+         getEntryFile(entry.getKey()).delete();
+         logger.debug("Evicted " + entry.getKey() + " from the binary resource cache");
+      }
+   }
+
+   private static boolean hasXmiIds(final XMLResource resource)
+   {
+      for (final Iterator<EObject> iterator = resource.getAllContents(); iterator.hasNext();)
+      {
+         if (resource.getID(iterator.next()) != null)
+            return true;
+      }
+      return false;
+   }
+
+   private File getEntryFile(final String key)
+   {
+      return new File(folder, key + ENTRY_SUFFIX);
+   }
+
+   private static String hashOf(final String text)
+   {
+      return toHex(createDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+   }
+
+   private static MessageDigest createDigest()
+   {
+      try
+      {
+         return MessageDigest.getInstance("SHA-1");
+      } catch (final NoSuchAlgorithmException e)
+      {
+         throw new IllegalStateException("SHA-1 is not available", e);
+      }
+   }
+
+   private static String toHex(final byte[] digest)
+   {
+      return String.format("%040x", new BigInteger(1, digest));
+   }
+}
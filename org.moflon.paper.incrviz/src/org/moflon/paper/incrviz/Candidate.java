@@ -0,0 +1,82 @@
+package org.moflon.paper.incrviz;
+
+import org.eclipse.core.resources.IFile;
+
+/**
+ * Describes a single evaluation candidate (i.e., an {@link org.eclipse.emf.ecore.EObject} that one of the diagram text
+ * providers is able to visualize) without holding a reference to the model element itself.
+ */
+final class Candidate
+{
+   private final IFile file;
+
+   private final String uriFragment;
+
+   private final String type;
+
+   private final int nodeCount;
+
+   private final int edgeCount;
+
+   private final int containmentDepth;
+
+   Candidate(final IFile file, final String uriFragment, final String type, final int nodeCount, final int edgeCount, final int containmentDepth)
+   {
+      this.file = file;
+      this.uriFragment = uriFragment;
+      this.type = type;
+      this.nodeCount = nodeCount;
+      this.edgeCount = edgeCount;
+      this.containmentDepth = containmentDepth;
+   }
+
+   public IFile getFile()
+   {
+      return file;
+   }
+
+   /**
+    * Returns the URI fragment that identifies the candidate within the resource of {@link #getFile()}
+    */
+   public String getUriFragment()
+   {
+      return uriFragment;
+   }
+
+   public String getType()
+   {
+      return type;
+   }
+
+   public int getNodeCount()
+   {
+      return nodeCount;
+   }
+
+   public int getEdgeCount()
+   {
+      return edgeCount;
+   }
+
+   /**
+    * Returns the length of the longest containment path from the candidate to one of its (transitive) contents
+    */
+   public int getContainmentDepth()
+   {
+      return containmentDepth;
+   }
+
+   /**
+    * Returns the size of the candidate, i.e., the sum of its node and edge count
+    */
+   public int getSize()
+   {
+      return nodeCount + edgeCount;
+   }
+
+   @Override
+   public String toString()
+   {
+      return file.getFullPath() + "#" + uriFragment + " (" + type + ")";
+   }
+}
@@ -0,0 +1,131 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.moflon.core.utilities.WorkspaceHelper;
+import org.moflon.core.utilities.eMoflonEMFUtil;
+import org.moflon.paper.incrviz.SizeMetrics.SubtreeSize;
+
+/**
+ * Loads every model file exactly once and records all evaluation candidates in a {@link CandidateIndex}.
+ * 
+ * The resulting index is used for progress reporting as well as for the actual evaluation.
+ */
+final class CandidateDiscovery
+{
+   private Logger logger = Logger.getLogger(CandidateDiscovery.class);
+
+   private final CandidateIndex candidateIndex;
+
+   private final Visualizer visualizer;
+
+   private final IProgressMonitor monitor;
+
+   private ResourceSet resourceSet;
+
+   public CandidateDiscovery(final CandidateIndex candidateIndex, final Visualizer visualizer, final IProgressMonitor monitor)
+   {
+      this.candidateIndex = candidateIndex;
+      this.visualizer = visualizer;
+      this.monitor = monitor;
+   }
+
+   /**
+    * Loads the given file into the resource set of this discovery and adds it and all of its candidates to the index
+    */
+   public void indexFile(final IFile file)
+   {
+      try
+      {
+         WorkspaceHelper.checkCanceledAndThrowInterruptedException(monitor);
+         monitor.subTask("Indexing " + file.getFullPath());
+
+         final Resource content = readEResource(file);
+         indexResource(file, content);
+      } catch (final InterruptedException e)
+      {
+         throw new RuntimeException("User canceled", e);
+      } catch (final RuntimeException e)
+      {
+         logException(e);
+      }
+   }
+
+   /**
+    * Adds the given (loaded) resource and all of its candidates to the index
+    */
+   void indexResource(final IFile file, final Resource content)
+   {
+      candidateIndex.addResource(file, content);
+      final List<Candidate> candidatesOfFile = new ArrayList<>();
+      boolean isIndexComplete = true;
+      final ContainmentReachability containmentReachability = visualizer.getContainmentReachability();
+      containmentReachability.update(content);
+      final SizeMetrics sizeMetrics = new SizeMetrics(eObject -> visualizer.determineTypeOfModel(eObject) != null);
+      final TreeIterator<EObject> allContentsIterator = content.getAllContents();
+      while (allContentsIterator.hasNext())
+      {
+         try
+         {
+            final EObject eObject = allContentsIterator.next();
+            if (!containmentReachability.mayContainCandidate(eObject.eClass()))
+            {
+               // Skip the subtree below the object, which cannot contain any candidate
+               allContentsIterator.prune();
+            }
+
+            final String type = visualizer.determineTypeOfModel(eObject);
+            if (type != null)
+            {
+               final SubtreeSize size = sizeMetrics.measure(eObject);
+               assert size.getNodeCount() == eMoflonEMFUtil.getNodeCount(eObject) : "Node count differs for " + eObject;
+               assert size.getEdgeCount() == eMoflonEMFUtil.getEdgeCount(eObject) : "Edge count differs for " + eObject;
+               final Candidate candidate = new Candidate(file, content.getURIFragment(eObject), type, size.getNodeCount(), size.getEdgeCount(),
+                     size.getDepth());
+               candidateIndex.addCandidate(candidate);
+               candidatesOfFile.add(candidate);
+
+               if ((candidateIndex.size() % 10000) == 0)
+               {
+                  logger.debug("Collecting objects: " + candidateIndex.size());
+               }
+            }
+         } catch (final RuntimeException e)
+         {
+            isIndexComplete = false;
+            logException(e);
+         }
+      }
+
+      final ResultCache resultCache = visualizer.getResultCache();
+      if (resultCache != null && isIndexComplete)
+      {
+         resultCache.recordFile(file, candidatesOfFile);
+      }
+   }
+
+   private Resource readEResource(final IFile file)
+   {
+      if (resourceSet == null)
+      {
+         resourceSet = eMoflonEMFUtil.createDefaultResourceSet();
+      }
+      final Resource resource = visualizer.getModelLoader().load(file, resourceSet);
+      return resource;
+   }
+
+   private void logException(final Exception e)
+   {
+      logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+      EvaluationStatistics.getInstance().recordError();
+   }
+}
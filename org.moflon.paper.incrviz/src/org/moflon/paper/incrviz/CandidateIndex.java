@@ -0,0 +1,71 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * Index of all evaluation candidates that have been found during the discovery stage.
+ * 
+ * The index retains the loaded resources so that the evaluation stage can resolve the candidates without parsing the
+ * files again.
+ */
+final class CandidateIndex
+{
+   private final Map<IFile, Resource> resources = new LinkedHashMap<>();
+
+   private final List<Candidate> candidates = new ArrayList<>();
+
+   void addResource(final IFile file, final Resource resource)
+   {
+      this.resources.put(file, resource);
+   }
+
+   void addCandidate(final Candidate candidate)
+   {
+      this.candidates.add(candidate);
+   }
+
+   /**
+    * Returns the candidates in the order in which they have been discovered
+    */
+   public List<Candidate> getCandidates()
+   {
+      return Collections.unmodifiableList(candidates);
+   }
+
+   public int size()
+   {
+      return candidates.size();
+   }
+
+   public int getFileCount()
+   {
+      return resources.size();
+   }
+
+   /**
+    * Returns the model element that is described by the given candidate
+    * 
+    * @throws IllegalStateException
+    *            if the resource of the candidate is not part of this index or the candidate cannot be found in it
+    */
+   public EObject resolve(final Candidate candidate)
+   {
+      final Resource resource = resources.get(candidate.getFile());
+      if (resource == null)
+         throw new IllegalStateException("Resource of candidate has not been indexed: " + candidate);
+
+      final EObject element = resource.getEObject(candidate.getUriFragment());
+      if (element == null)
+         throw new IllegalStateException("Cannot resolve candidate: " + candidate);
+
+      return element;
+   }
+}
@@ -0,0 +1,24 @@
+package org.moflon.paper.incrviz;
+
+import org.moflon.tgg.language.TGGRule;
+
+/**
+ * A kind of change that the {@link ChangeScenarioEngine} applies to TGG rules
+ * 
+ * @see StandardChangeOperation
+ */
+interface ChangeOperation
+{
+   /**
+    * Returns the name of the operation as it appears in the configuration and in the results
+    */
+   String getName();
+
+   /**
+    * Applies a change of the given size (e.g., the number of added object variables) to the given rule
+    * 
+    * @return the number of elements that have actually been changed, which may be smaller than the requested size for
+    *         small rules
+    */
+   int apply(TGGRule tggRule, int changeSize, EvaluationTGGRuleModifier modifier);
+}
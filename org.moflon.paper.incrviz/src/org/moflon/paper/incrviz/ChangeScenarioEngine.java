@@ -0,0 +1,146 @@
+package org.moflon.paper.incrviz;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.change.util.ChangeRecorder;
+import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
+import org.moflon.tgg.language.TGGRule;
+
+/**
+ * Measures incremental and batch synchronization of TGG rules for a sweep of change scenarios.
+ * 
+ * A scenario applies one {@link ChangeOperation} with a given change size, using a random generator with a given seed.
+ * The engine runs every registered operation with every change size from 1 to the maximum change size and every seed
+ * from 1 to the seed count. Each scenario starts from the original state of the rule, which is restored with a
+ * {@link ChangeRecorder} afterwards. Each scenario results in one row (see {@link #getSchema()}).
+ */
+final class ChangeScenarioEngine
+{
+   private static final int COLUMN_COUNT = getSchema().size();
+
+   private final List<ChangeOperation> operations = new ArrayList<>();
+
+   private final int maximumChangeSize;
+
+   private final int seedCount;
+
+   private final ResultsSink resultsSink;
+
+   private final TransformationTimer timer = new TransformationTimer();
+
+   ChangeScenarioEngine(final int maximumChangeSize, final int seedCount, final ResultsSink resultsSink)
+   {
+      this.maximumChangeSize = maximumChangeSize;
+      this.seedCount = seedCount;
+      this.resultsSink = resultsSink;
+   }
+
+   /**
+    * Creates an engine with the same settings, operations and results sink, e.g., for a worker thread
+    */
+   ChangeScenarioEngine createWorker()
+   {
+      final ChangeScenarioEngine worker = new ChangeScenarioEngine(maximumChangeSize, seedCount, resultsSink);
+      worker.operations.addAll(operations);
+      return worker;
+   }
+
+   public void register(final ChangeOperation operation)
+   {
+      this.operations.add(operation);
+   }
+
+   /**
+    * Returns the layout of the rows that {@link #run(EMoflonDiagramTextProvider, TGGRule, String, String, int)} produces
+    */
+   static ResultsSchema getSchema()
+   {
+      final ResultsSchema schema = new ResultsSchema();
+      schema.add("project", ColumnType.TEXT);
+      schema.add("id", ColumnType.TEXT);
+      schema.add("objectSize", ColumnType.INTEGER);
+      schema.add("operation", ColumnType.TEXT);
+      schema.add("changeSize", ColumnType.INTEGER);
+      schema.add("actualChangeSize", ColumnType.INTEGER);
+      schema.add("seed", ColumnType.INTEGER);
+      schema.add("timeIncr", ColumnType.MILLIS);
+      schema.add("timeBatch", ColumnType.MILLIS);
+      schema.add("wallNanosIncr", ColumnType.INTEGER);
+      schema.add("wallNanosBatch", ColumnType.INTEGER);
+      schema.add("cpuNanosIncr", ColumnType.INTEGER);
+      schema.add("cpuNanosBatch", ColumnType.INTEGER);
+      schema.add("wallNanosIncrOverBatch", ColumnType.RATIO);
+      return schema;
+   }
+
+   /**
+    * Runs all scenarios for the given rule, which must be a working copy
+    */
+   public void run(final EMoflonDiagramTextProvider diagramTextProvider, final TGGRule tggRule, final String pathToResource, final String objectId,
+         final int objectSize) throws IOException
+   {
+      for (final ChangeOperation operation : operations)
+      {
+         for (int changeSize = 1; changeSize <= maximumChangeSize; ++changeSize)
+         {
+            for (int seed = 1; seed <= seedCount; ++seed)
+            {
+               final ResultRow row = new ResultRow(COLUMN_COUNT);
+               row.addText(pathToResource).addText(objectId).addInteger(objectSize);
+               row.addText(operation.getName()).addInteger(changeSize);
+               runScenario(diagramTextProvider, tggRule, operation, changeSize, seed, row);
+               resultsSink.append(row);
+            }
+         }
+      }
+   }
+
+   /**
+    * Writes all pending rows and closes the results file
+    */
+   public void closeResults() throws IOException
+   {
+      resultsSink.close();
+   }
+
+   private void runScenario(final EMoflonDiagramTextProvider diagramTextProvider, final TGGRule tggRule, final ChangeOperation operation,
+         final int changeSize, final int seed, final ResultRow row)
+   {
+      diagramTextProvider.clearCache();
+      diagramTextProvider.modelToDot(tggRule);
+
+      final ChangeRecorder changeRecorder = new ChangeRecorder(tggRule);
+      final int actualChangeSize;
+      final Measurement incremental;
+      final Measurement batch;
+      try
+      {
+         actualChangeSize = operation.apply(tggRule, changeSize, new EvaluationTGGRuleModifier(new Random(seed)));
+         incremental = this.timer.measure(diagramTextProvider, tggRule); // Incremental
+         diagramTextProvider.clearCache();
+         batch = this.timer.measure(diagramTextProvider, tggRule); // Batch
+      } finally
+      {
+         changeRecorder.endRecording().apply();
+         changeRecorder.dispose();
+      }
+
+      row.addInteger(actualChangeSize).addInteger(seed);
+      row.addMillis(incremental.getProviderDurationInMillis()).addMillis(batch.getProviderDurationInMillis());
+      row.addInteger(incremental.getWallTimeInNanos()).addInteger(batch.getWallTimeInNanos());
+      appendCpuTime(row, incremental);
+      appendCpuTime(row, batch);
+      row.addRatio((double) incremental.getWallTimeInNanos() / batch.getWallTimeInNanos());
+   }
+
+   private static void appendCpuTime(final ResultRow row, final Measurement measurement)
+   {
+      if (measurement.getCpuTimeInNanos() == Measurement.NOT_AVAILABLE)
+         row.addMissing();
+      else
+         row.addInteger(measurement.getCpuTimeInNanos());
+   }
+}
@@ -0,0 +1,27 @@
+package org.moflon.paper.incrviz;
+
+/**
+ * Type of the values in one column of the results
+ */
+enum ColumnType
+{
+   /**
+    * Arbitrary text, e.g., the type or the identifier of a candidate
+    */
+   TEXT,
+
+   /**
+    * Integral number, e.g., a node count
+    */
+   INTEGER,
+
+   /**
+    * Duration in milliseconds. Printed with two decimal places in CSV files.
+    */
+   MILLIS,
+
+   /**
+    * Arbitrary floating point number, e.g., a ratio between two durations. Printed with full precision in CSV files.
+    */
+   RATIO
+}
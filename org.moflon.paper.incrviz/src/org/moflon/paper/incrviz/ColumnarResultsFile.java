@@ -0,0 +1,236 @@
+package org.moflon.paper.incrviz;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Writes the results in a compact, typed, columnar binary format.
+ * 
+ * Layout (all numbers big-endian, as written by {@link DataOutputStream}):
+ * 
+ * <pre>
+ * file   := magic:int version:int columnCount:int (columnType:byte columnName:UTF){columnCount} block*
+ * block  := rowCount:int dictionarySize:int dictionaryEntry:UTF{dictionarySize} column{columnCount}
+ * column := TEXT:    dictionaryIndex:int{rowCount}   (-1 = not available)
+ *         | INTEGER: value:long{rowCount}            (Long.MIN_VALUE = not available)
+ *         | MILLIS/RATIO: value:double{rowCount}     (NaN = not available)
+ * </pre>
+ * 
+ * Each block is self-contained: text columns are dictionary-encoded with a dictionary per block. Since all numeric
+ * columns of a block have a fixed width, they can be accessed directly after mapping the file into memory.
+ * 
+ * Rows are collected in primitive arrays and written as a block when {@link #BLOCK_SIZE} rows are available or the file
+ * is closed. If the file already exists with a different schema, it is moved aside.
+ * 
+ * @see ColumnarResultsReader
+ */
+final class ColumnarResultsFile implements ResultsSink
+{
+   static final int MAGIC = 0x49565a43; // "IVZC"
+
+   static final int VERSION = 1;
+
+   static final int MISSING_TEXT = -1;
+
+   static final long MISSING_INTEGER = Long.MIN_VALUE;
+
+   private static final int BLOCK_SIZE = 4096;
+
+   private final Logger logger = Logger.getLogger(ColumnarResultsFile.class);
+
+   private final File targetFile;
+
+   private final ResultsSchema schema;
+
+   private final int[][] textColumns;
+
+   private final long[][] integerColumns;
+
+   private final double[][] doubleColumns;
+
+   private final Map<String, Integer> dictionary = new HashMap<>();
+
+   private final String[] dictionaryEntries;
+
+   private int rowCount;
+
+   private DataOutputStream output;
+
+   ColumnarResultsFile(final File targetFile, final ResultsSchema schema)
+   {
+      this.targetFile = targetFile;
+      this.schema = schema;
+      this.textColumns = new int[schema.size()][];
+      this.integerColumns = new long[schema.size()][];
+      this.doubleColumns = new double[schema.size()][];
+      int textColumnCount = 0;
+      for (int column = 0; column < schema.size(); ++column)
+      {
+         switch (schema.getType(column))
+         {
+         case TEXT:
+            textColumns[column] = new int[BLOCK_SIZE];
+            ++textColumnCount;
+            break;
+         case INTEGER:
+            integerColumns[column] = new long[BLOCK_SIZE];
+            break;
+         case MILLIS:
+         case RATIO:
+            doubleColumns[column] = new double[BLOCK_SIZE];
+            break;
+         }
+      }
+      // Each text cell of a block adds at most one entry to the dictionary
+      this.dictionaryEntries = new String[BLOCK_SIZE * textColumnCount];
+   }
+
+   @Override
+   public synchronized void append(final ResultRow row) throws IOException
+   {
+      if (row.size() != schema.size())
+         throw new IllegalArgumentException("Invalid column count: " + row.size() + ". Expected: " + schema.size());
+
+      for (int column = 0; column < schema.size(); ++column)
+      {
+         final boolean isMissing = row.isMissing(column);
+         switch (schema.getType(column))
+         {
+         case TEXT:
+            textColumns[column][rowCount] = isMissing ? MISSING_TEXT : lookUp(row.getText(column));
+            break;
+         case INTEGER:
+            integerColumns[column][rowCount] = isMissing ? MISSING_INTEGER : (long) row.getNumber(column);
+            break;
+         case MILLIS:
+         case RATIO:
+            doubleColumns[column][rowCount] = isMissing ? Double.NaN : row.getNumber(column);
+            break;
+         }
+      }
+
+      ++rowCount;
+      if (rowCount == BLOCK_SIZE)
+      {
+         writeBlock();
+      }
+   }
+
+   @Override
+   public synchronized void close() throws IOException
+   {
+      if (rowCount > 0)
+      {
+         writeBlock();
+      }
+
+      if (output != null)
+      {
+         try
+         {
+            output.flush();
+         } finally
+         {
+            output.close();
+            output = null;
+         }
+      }
+   }
+
+   private int lookUp(final String text)
+   {
+      final Integer index = dictionary.get(text);
+      if (index != null)
+         return index;
+
+      final int newIndex = dictionary.size();
+      dictionary.put(text, newIndex);
+      dictionaryEntries[newIndex] = text;
+      return newIndex;
+   }
+
+   private void writeBlock() throws IOException
+   {
+      if (output == null)
+      {
+         open();
+      }
+
+      output.writeInt(rowCount);
+      output.writeInt(dictionary.size());
+      for (int i = 0; i < dictionary.size(); ++i)
+      {
+         output.writeUTF(dictionaryEntries[i]);
+      }
+
+      for (int column = 0; column < schema.size(); ++column)
+      {
+         switch (schema.getType(column))
+         {
+         case TEXT:
+            for (int row = 0; row < rowCount; ++row)
+               output.writeInt(textColumns[column][row]);
+            break;
+         case INTEGER:
+            for (int row = 0; row < rowCount; ++row)
+               output.writeLong(integerColumns[column][row]);
+            break;
+         case MILLIS:
+         case RATIO:
+            for (int row = 0; row < rowCount; ++row)
+               output.writeDouble(doubleColumns[column][row]);
+            break;
+         }
+      }
+      output.flush();
+
+      rowCount = 0;
+      dictionary.clear();
+   }
+
+   private void open() throws IOException
+   {
+      targetFile.getParentFile().mkdirs();
+      if (targetFile.exists() && targetFile.length() > 0 && !hasSameSchema(targetFile))
+      {
+         final File backupFile = new File(targetFile.getParentFile(), targetFile.getName() + "." + System.currentTimeMillis() + ".bak");
+         logger.info(String.format("Schema of %s has changed. Moving existing results to %s", targetFile, backupFile));
+         if (!targetFile.renameTo(backupFile))
+            throw new IOException("Cannot move " + targetFile + " to " + backupFile);
+      }
+
+      final boolean isNewFile = !targetFile.exists() || targetFile.length() == 0;
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(targetFile, true), 1 << 16));
+      if (isNewFile)
+      {
+         output.writeInt(MAGIC);
+         output.writeInt(VERSION);
+         output.writeInt(schema.size());
+         for (int column = 0; column < schema.size(); ++column)
+         {
+            output.writeByte(schema.getType(column).ordinal());
+            output.writeUTF(schema.getName(column));
+         }
+      }
+   }
+
+   private boolean hasSameSchema(final File file) throws IOException
+   {
+      try (final DataInputStream input = new DataInputStream(new FileInputStream(file)))
+      {
+         return schema.equals(ColumnarResultsReader.readSchema(input));
+      } catch (final IOException e)
+      {
+         return false;
+      }
+   }
+}
@@ -0,0 +1,196 @@
+package org.moflon.paper.incrviz;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Reads files that have been written by {@link ColumnarResultsFile} and exports them to CSV.
+ * 
+ * Usage as standalone program: java org.moflon.paper.incrviz.ColumnarResultsReader results.ivzc results.csv
+ */
+public final class ColumnarResultsReader
+{
+   /**
+    * Receives the contents of a binary results file
+    */
+   interface ResultsHandler
+   {
+      /**
+       * Invoked once before the first row
+       */
+      void handleSchema(ResultsSchema schema) throws IOException;
+
+      void handleRow(ResultRow row) throws IOException;
+   }
+
+   private ColumnarResultsReader()
+   {
+      // Utility class
+   }
+
+   public static void main(final String[] args) throws IOException
+   {
+      if (args.length != 2)
+      {
+         System.err.println("Usage: ColumnarResultsReader <binary results file> <target CSV file>");
+         System.exit(1);
+      }
+      final int rowCount = exportToCsv(new File(args[0]), new File(args[1]));
+      System.out.println(String.format("Exported %d rows to %s", rowCount, args[1]));
+   }
+
+   /**
+    * Writes the contents of the given binary results file as CSV file, which has the same format as the results file
+    * produced by {@link Visualizer}
+    * 
+    * @return the number of exported rows
+    */
+   public static int exportToCsv(final File binaryFile, final File csvFile) throws IOException
+   {
+      try (final BufferedWriter writer = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8))
+      {
+         final int[] rowCount = { 0 };
+         read(binaryFile, new ResultsHandler() {
+            @Override
+            public void handleSchema(final ResultsSchema schema) throws IOException
+            {
+               writer.write(String.join(ResultRow.CSV_SEP, schema.getNames()));
+               writer.newLine();
+            }
+
+            @Override
+            public void handleRow(final ResultRow row) throws IOException
+            {
+               writer.write(row.toCsv());
+               writer.newLine();
+               ++rowCount[0];
+            }
+         });
+         return rowCount[0];
+      }
+   }
+
+   /**
+    * Reads the schema and all rows of the given file
+    */
+   static void read(final File binaryFile, final ResultsHandler handler) throws IOException
+   {
+      try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile), 1 << 16)))
+      {
+         final ResultsSchema schema = readSchema(input);
+         handler.handleSchema(schema);
+
+         while (true)
+         {
+            final int rowCount;
+            try
+            {
+               rowCount = input.readInt();
+            } catch (final EOFException e)
+            {
+               break;
+            }
+
+            final String[] dictionary = new String[input.readInt()];
+            for (int i = 0; i < dictionary.length; ++i)
+            {
+               dictionary[i] = input.readUTF();
+            }
+
+            final Object[] columns = new Object[schema.size()];
+            for (int column = 0; column < schema.size(); ++column)
+            {
+               columns[column] = readColumn(input, schema.getType(column), rowCount);
+            }
+
+            for (int row = 0; row < rowCount; ++row)
+            {
+               final ResultRow resultRow = new ResultRow(schema.size());
+               for (int column = 0; column < schema.size(); ++column)
+               {
+                  appendCell(resultRow, schema.getType(column), columns[column], row, dictionary);
+               }
+               handler.handleRow(resultRow);
+            }
+         }
+      }
+   }
+
+   static ResultsSchema readSchema(final DataInputStream input) throws IOException
+   {
+      if (input.readInt() != ColumnarResultsFile.MAGIC)
+         throw new IOException("Not a binary results file");
+      final int version = input.readInt();
+      if (version != ColumnarResultsFile.VERSION)
+         throw new IOException("Unsupported version: " + version);
+
+      final ResultsSchema schema = new ResultsSchema();
+      final int columnCount = input.readInt();
+      for (int column = 0; column < columnCount; ++column)
+      {
+         final ColumnType type = ColumnType.values()[input.readByte()];
+         schema.add(input.readUTF(), type);
+      }
+      return schema;
+   }
+
+   private static Object readColumn(final DataInputStream input, final ColumnType type, final int rowCount) throws IOException
+   {
+      switch (type)
+      {
+      case TEXT:
+         final int[] indices = new int[rowCount];
+         for (int row = 0; row < rowCount; ++row)
+            indices[row] = input.readInt();
+         return indices;
+      case INTEGER:
+         final long[] integers = new long[rowCount];
+         for (int row = 0; row < rowCount; ++row)
+            integers[row] = input.readLong();
+         return integers;
+      default:
+         final double[] doubles = new double[rowCount];
+         for (int row = 0; row < rowCount; ++row)
+            doubles[row] = input.readDouble();
+         return doubles;
+      }
+   }
+
+   private static void appendCell(final ResultRow row, final ColumnType type, final Object column, final int rowIndex, final String[] dictionary)
+   {
+      switch (type)
+      {
+      case TEXT:
+         final int index = ((int[]) column)[rowIndex];
+         if (index == ColumnarResultsFile.MISSING_TEXT)
+            row.addMissing();
+         else
+            row.addText(dictionary[index]);
+         break;
+      case INTEGER:
+         final long integer = ((long[]) column)[rowIndex];
+         if (integer == ColumnarResultsFile.MISSING_INTEGER)
+            row.addMissing();
+         else
+            row.addInteger(integer);
+         break;
+      case MILLIS:
+      case RATIO:
+         final double value = ((double[]) column)[rowIndex];
+         if (Double.isNaN(value))
+            row.addMissing();
+         else if (type == ColumnType.MILLIS)
+            row.addMillis(value);
+         else
+            row.addRatio(value);
+         break;
+      }
+   }
+}
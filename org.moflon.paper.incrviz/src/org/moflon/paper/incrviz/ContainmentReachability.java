@@ -0,0 +1,209 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+import org.moflon.tgg.language.LanguagePackage;
+import org.moflon.tgg.runtime.RuntimePackage;
+
+import SDMLanguage.SDMLanguagePackage;
+
+/**
+ * Determines which {@link EClass}es may transitively contain an evaluation candidate.
+ * 
+ * All candidates (SDMs, TGG rules, story patterns, precedence graphs and triple matches) are instances of classes from
+ * the SDM, TGG language or TGG runtime metamodels. An instance of any other class can only contain a candidate if one
+ * of its containment references may hold an instance of a class that may contain a candidate. The analysis is
+ * conservative: containments of type EObject, feature maps and classes of metamodels that the analysis does not know
+ * are assumed to lead to candidates.
+ * 
+ * The analysis covers all metamodels that are loaded into the global package registry or into the resource set of the
+ * traversed resource. It is recomputed whenever the number of known metamodels changes.
+ */
+final class ContainmentReachability
+{
+   private final Logger logger = Logger.getLogger(ContainmentReachability.class);
+
+   private final Set<EPackage> candidatePackages;
+
+   private final Set<EPackage> knownPackages = new HashSet<>();
+
+   private final Set<EClass> knownClasses = new HashSet<>();
+
+   private final Set<EClass> classesThatMayContainCandidates = new HashSet<>();
+
+   private boolean isEnabled = true;
+
+   ContainmentReachability()
+   {
+      this.candidatePackages = new HashSet<>();
+      for (final EPackage rootPackage : new EPackage[] { SDMLanguagePackage.eINSTANCE, LanguagePackage.eINSTANCE, RuntimePackage.eINSTANCE })
+      {
+         collectPackageAndSubpackages(rootPackage, candidatePackages);
+      }
+   }
+
+   /**
+    * Brings the analysis up to date with the metamodels that are available for the given resource
+    */
+   public void update(final Resource resource)
+   {
+      final Set<EPackage> packages = new LinkedHashSet<>();
+      try
+      {
+         collectLoadedPackages(EPackage.Registry.INSTANCE.values(), packages);
+         final ResourceSet resourceSet = resource.getResourceSet();
+         if (resourceSet != null)
+         {
+            collectLoadedPackages(resourceSet.getPackageRegistry().values(), packages);
+            for (final Resource metamodelResource : resourceSet.getResources())
+            {
+               collectLoadedPackages(metamodelResource.getContents(), packages);
+            }
+         } else
+         {
+            collectLoadedPackages(resource.getContents(), packages);
+         }
+      } catch (final ConcurrentModificationException e)
+      {
+         // Another thread is loading a metamodel right now
+         logger.debug("Package registry changed during analysis. Not pruning " + resource.getURI());
+         this.isEnabled = false;
+         return;
+      }
+
+      this.isEnabled = true;
+      if (packages.size() != knownPackages.size() || !knownPackages.containsAll(packages))
+      {
+         analyze(packages);
+      }
+   }
+
+   /**
+    * Returns whether instances of the given class may (transitively) contain a candidate. If false, the subtree below an
+    * instance of the class can be skipped.
+    */
+   public boolean mayContainCandidate(final EClass eClass)
+   {
+      return !isEnabled || !knownClasses.contains(eClass) || classesThatMayContainCandidates.contains(eClass);
+   }
+
+   private void analyze(final Set<EPackage> packages)
+   {
+      knownPackages.clear();
+      knownPackages.addAll(packages);
+      knownClasses.clear();
+      classesThatMayContainCandidates.clear();
+
+      for (final EPackage ePackage : packages)
+      {
+         for (final EClassifier eClassifier : ePackage.getEClassifiers())
+         {
+            if (eClassifier instanceof EClass)
+               knownClasses.add((EClass) eClassifier);
+         }
+      }
+
+      // Each class is a subtype of itself
+      final Map<EClass, List<EClass>> subtypes = new HashMap<>();
+      for (final EClass eClass : knownClasses)
+      {
+         subtypes.computeIfAbsent(eClass, c -> new ArrayList<>()).add(eClass);
+         for (final EClass superType : eClass.getEAllSuperTypes())
+         {
+            subtypes.computeIfAbsent(superType, c -> new ArrayList<>()).add(eClass);
+         }
+      }
+
+      // Reverse containment graph: class -> classes whose instances may contain instances of the class
+      final Map<EClass, List<EClass>> containers = new HashMap<>();
+      final Deque<EClass> worklist = new ArrayDeque<>();
+      for (final EClass eClass : knownClasses)
+      {
+         if (candidatePackages.contains(eClass.getEPackage()) || hasFeatureMap(eClass))
+         {
+            worklist.add(eClass);
+            continue;
+         }
+
+         for (final EReference containment : eClass.getEAllContainments())
+         {
+            final EClass referenceType = containment.getEReferenceType();
+            if (referenceType == null || referenceType == EcorePackage.Literals.EOBJECT || !knownClasses.contains(referenceType))
+            {
+               worklist.add(eClass);
+               break;
+            }
+            for (final EClass containedType : subtypes.get(referenceType))
+            {
+               containers.computeIfAbsent(containedType, c -> new ArrayList<>()).add(eClass);
+            }
+         }
+      }
+
+      while (!worklist.isEmpty())
+      {
+         final EClass eClass = worklist.poll();
+         if (classesThatMayContainCandidates.add(eClass))
+         {
+            worklist.addAll(containers.getOrDefault(eClass, Collections.emptyList()));
+         }
+      }
+
+      logger.debug(String.format("Containment analysis: %d of %d classes in %d packages may contain candidates", classesThatMayContainCandidates.size(),
+            knownClasses.size(), knownPackages.size()));
+   }
+
+   private static boolean hasFeatureMap(final EClass eClass)
+   {
+      for (final EAttribute attribute : eClass.getEAllAttributes())
+      {
+         if (FeatureMapUtil.isFeatureMap(attribute))
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Adds all packages among the given objects (skipping package descriptors, which have not been loaded yet)
+    */
+   private static void collectLoadedPackages(final Collection<?> objects, final Set<EPackage> packages)
+   {
+      for (final Object object : new ArrayList<>(objects))
+      {
+         if (object instanceof EPackage)
+            collectPackageAndSubpackages((EPackage) object, packages);
+      }
+   }
+
+   private static void collectPackageAndSubpackages(final EPackage ePackage, final Set<EPackage> packages)
+   {
+      if (packages.add(ePackage))
+      {
+         for (final EPackage subpackage : ePackage.getESubpackages())
+         {
+            collectPackageAndSubpackages(subpackage, packages);
+         }
+      }
+   }
+}
@@ -0,0 +1,634 @@
+package org.moflon.paper.incrviz;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Settings of an evaluation run.
+ * 
+ * The default values can be overridden using system properties, e.g., -DINCR_VIZ_BOUNDED_MEMORY=true
+ */
+public class EvaluationConfiguration
+{
+   /**
+    * Folder that receives all result files (default: C:/tmp/)
+    */
+   public static final String ROOT_FOLDER_PROPERTY = "INCR_VIZ_ROOT_FOLDER";
+
+   /**
+    * If true, each file is loaded into its own resource set, which is unloaded after the candidates of the file have been
+    * measured (default: false)
+    */
+   public static final String BOUNDED_MEMORY_PROPERTY = "INCR_VIZ_BOUNDED_MEMORY";
+
+   /**
+    * Number of worker threads that evaluate candidates in parallel, each of them with its own diagram text providers and
+    * resource set. Non-positive values select the number of available processors. (default: 1)
+    */
+   public static final String WORKER_COUNT_PROPERTY = "INCR_VIZ_WORKER_COUNT";
+
+   /**
+    * If true, only files that have changed since the previous run are evaluated. The results of all other files are taken
+    * over from the index of the previous run. (default: false)
+    */
+   public static final String INCREMENTAL_PROPERTY = "INCR_VIZ_INCREMENTAL";
+
+   /**
+    * Format of the results: csv, binary (see {@link ColumnarResultsFile}) or both (default: csv)
+    */
+   public static final String RESULTS_FORMAT_PROPERTY = "INCR_VIZ_RESULTS_FORMAT";
+
+   /**
+    * Number of discarded iterations before each measurement (default: 0)
+    */
+   public static final String WARMUP_ITERATIONS_PROPERTY = "INCR_VIZ_WARMUP_ITERATIONS";
+
+   /**
+    * Number of repetitions of each measurement. In adaptive mode, this is the minimum number of repetitions. (default: 5)
+    */
+   public static final String REPETITIONS_PROPERTY = "INCR_VIZ_REPETITIONS";
+
+   /**
+    * If true, each measurement is repeated until the confidence interval of its median is narrow enough (see
+    * {@link #TARGET_RELATIVE_WIDTH_PROPERTY}) or the maximum number of repetitions is reached (default: false)
+    */
+   public static final String ADAPTIVE_REPETITIONS_PROPERTY = "INCR_VIZ_ADAPTIVE_REPETITIONS";
+
+   /**
+    * Maximum number of repetitions in adaptive mode (default: 50)
+    */
+   public static final String MAXIMUM_REPETITIONS_PROPERTY = "INCR_VIZ_MAXIMUM_REPETITIONS";
+
+   /**
+    * Target width of the 95% confidence interval of the median, relative to the median, in adaptive mode (default: 0.05)
+    */
+   public static final String TARGET_RELATIVE_WIDTH_PROPERTY = "INCR_VIZ_TARGET_RELATIVE_WIDTH";
+
+   /**
+    * If true, each TGG rule is additionally measured for a sweep of change scenarios, whose results are written to
+    * incrviz_sweep.csv (default: false)
+    */
+   public static final String SWEEP_PROPERTY = "INCR_VIZ_SWEEP";
+
+   /**
+    * Largest change size of the sweep (default: 10)
+    */
+   public static final String SWEEP_MAXIMUM_CHANGE_SIZE_PROPERTY = "INCR_VIZ_SWEEP_MAXIMUM_CHANGE_SIZE";
+
+   /**
+    * Number of random seeds per change size of the sweep (default: 3)
+    */
+   public static final String SWEEP_SEED_COUNT_PROPERTY = "INCR_VIZ_SWEEP_SEED_COUNT";
+
+   /**
+    * Comma-separated names of the change operations of the sweep (default: all, see {@link StandardChangeOperation})
+    */
+   public static final String SWEEP_OPERATIONS_PROPERTY = "INCR_VIZ_SWEEP_OPERATIONS";
+
+   /**
+    * If true, synthetic models of increasing size are generated from TGG rules, SDM activities and precedence graphs of the
+    * workspace and measured afterwards (see {@link ScalabilityStudy}) (default: false)
+    */
+   public static final String SCALABILITY_PROPERTY = "INCR_VIZ_SCALABILITY";
+
+   /**
+    * Comma-separated numbers of copies of the replicated contents of the synthetic models (default: 1,2,4,8,16)
+    */
+   public static final String SCALABILITY_COPIES_PROPERTY = "INCR_VIZ_SCALABILITY_COPIES";
+
+   /**
+    * Number of additional edges per replicated element of the synthetic models (default: 0.0)
+    */
+   public static final String SCALABILITY_EDGE_DENSITY_PROPERTY = "INCR_VIZ_SCALABILITY_EDGE_DENSITY";
+
+   /**
+    * Containment level at which the contents of the synthetic models are replicated (default: 1)
+    */
+   public static final String SCALABILITY_NESTING_DEPTH_PROPERTY = "INCR_VIZ_SCALABILITY_NESTING_DEPTH";
+
+   /**
+    * Results file of a previous run. If given, the results of the current run are compared with it afterwards (see
+    * {@link RegressionGate}) (default: none)
+    */
+   public static final String BASELINE_PROPERTY = "INCR_VIZ_BASELINE";
+
+   /**
+    * Maximum tolerated relative slowdown of the median per type compared to the baseline (default: 0.1)
+    */
+   public static final String REGRESSION_THRESHOLD_PROPERTY = "INCR_VIZ_REGRESSION_THRESHOLD";
+
+   /**
+    * Significance level of the statistical tests against the baseline (default: 0.05)
+    */
+   public static final String SIGNIFICANCE_LEVEL_PROPERTY = "INCR_VIZ_SIGNIFICANCE_LEVEL";
+
+   /**
+    * If true, the files are loaded ahead by loader threads while a dedicated thread measures the candidates of the files
+    * that have been loaded already and another thread writes the results (see {@link EvaluationPipeline}). Only applies
+    * to runs with one worker. (default: false)
+    */
+   public static final String PIPELINE_PROPERTY = "INCR_VIZ_PIPELINE";
+
+   /**
+    * Number of threads that load files ahead in pipeline mode (default: 2)
+    */
+   public static final String LOADER_THREAD_COUNT_PROPERTY = "INCR_VIZ_LOADER_THREAD_COUNT";
+
+   /**
+    * Maximum number of loaded files that wait for their measurement in pipeline mode (default: 4)
+    */
+   public static final String LOAD_QUEUE_CAPACITY_PROPERTY = "INCR_VIZ_LOAD_QUEUE_CAPACITY";
+
+   /**
+    * Options for loading the model files: default or fast (see {@link ModelLoader}). The load time and throughput of
+    * each file are written to incrviz_load.csv. (default: default)
+    */
+   public static final String LOAD_PROFILE_PROPERTY = "INCR_VIZ_LOAD_PROFILE";
+
+   /**
+    * If true, loaded models are stored in a cache in the subfolder incrviz_cache of the root folder, from which later runs
+    * load them instead of parsing the XMI files again (see {@link BinaryResourceCache}) (default: false)
+    */
+   public static final String BINARY_CACHE_PROPERTY = "INCR_VIZ_BINARY_CACHE";
+
+   /**
+    * Maximum size of the binary resource cache in MB. The least recently used models are evicted first. (default: 1024)
+    */
+   public static final String BINARY_CACHE_MAXIMUM_SIZE_PROPERTY = "INCR_VIZ_BINARY_CACHE_MAXIMUM_SIZE";
+
+   /**
+    * Supported formats of the results
+    */
+   public enum ResultsFormat
+   {
+      CSV, BINARY, BOTH;
+
+      public boolean includesCsv()
+      {
+         return this != BINARY;
+      }
+
+      public boolean includesBinary()
+      {
+         return this != CSV;
+      }
+   }
+
+   /**
+    * Supported profiles for loading the model files
+    */
+   public enum LoadProfile
+   {
+      /**
+       * The load options of the resource set
+       */
+      DEFAULT,
+
+      /**
+       * Options that are tuned for large XMI files
+       */
+      FAST
+   }
+
+   private File rootFolder;
+
+   private boolean boundedMemory;
+
+   private int workerCount;
+
+   private boolean incremental;
+
+   private ResultsFormat resultsFormat;
+
+   private int warmupIterations;
+
+   private int repetitions;
+
+   private boolean adaptiveRepetitions;
+
+   private int maximumRepetitions;
+
+   private double targetRelativeWidth;
+
+   private boolean sweep;
+
+   private int sweepMaximumChangeSize;
+
+   private int sweepSeedCount;
+
+   private List<String> sweepOperations;
+
+   private boolean scalability;
+
+   private List<Integer> scalabilityCopies;
+
+   private double scalabilityEdgeDensity;
+
+   private int scalabilityNestingDepth;
+
+   private File baseline;
+
+   private double regressionThreshold;
+
+   private double significanceLevel;
+
+   private boolean pipeline;
+
+   private int loaderThreadCount;
+
+   private int loadQueueCapacity;
+
+   private LoadProfile loadProfile;
+
+   private boolean binaryCache;
+
+   private int binaryCacheMaximumSizeInMegabytes;
+
+   public EvaluationConfiguration()
+   {
+      this.rootFolder = new File("C:/tmp/");
+      this.boundedMemory = false;
+      this.workerCount = 1;
+      this.incremental = false;
+      this.resultsFormat = ResultsFormat.CSV;
+      this.warmupIterations = 0;
+      this.repetitions = 5;
+      this.adaptiveRepetitions = false;
+      this.maximumRepetitions = 50;
+      this.targetRelativeWidth = 0.05;
+      this.sweep = false;
+      this.sweepMaximumChangeSize = 10;
+      this.sweepSeedCount = 3;
+      this.sweepOperations = Arrays.stream(StandardChangeOperation.values()).map(StandardChangeOperation::getName).collect(Collectors.toList());
+      this.scalability = false;
+      this.scalabilityCopies = Arrays.asList(1, 2, 4, 8, 16);
+      this.scalabilityEdgeDensity = 0.0;
+      this.scalabilityNestingDepth = 1;
+      this.baseline = null;
+      this.regressionThreshold = 0.1;
+      this.significanceLevel = 0.05;
+      this.pipeline = false;
+      this.loaderThreadCount = 2;
+      this.loadQueueCapacity = 4;
+      this.loadProfile = LoadProfile.DEFAULT;
+      this.binaryCache = false;
+      this.binaryCacheMaximumSizeInMegabytes = 1024;
+   }
+
+   /**
+    * Creates a configuration that reflects the current system properties
+    */
+   public static EvaluationConfiguration fromSystemProperties()
+   {
+      final EvaluationConfiguration configuration = new EvaluationConfiguration();
+
+      // Use for instance: -DINCR_VIZ_ROOT_FOLDER=C:\Users\rkluge\tmp
+      final String rootFolder = System.getProperty(ROOT_FOLDER_PROPERTY);
+      if (rootFolder != null)
+         configuration.setRootFolder(new File(rootFolder));
+
+      configuration.setBoundedMemory(Boolean.getBoolean(BOUNDED_MEMORY_PROPERTY));
+      configuration.setWorkerCount(Integer.getInteger(WORKER_COUNT_PROPERTY, configuration.getWorkerCount()));
+      configuration.setIncremental(Boolean.getBoolean(INCREMENTAL_PROPERTY));
+
+      final String resultsFormat = System.getProperty(RESULTS_FORMAT_PROPERTY);
+      if (resultsFormat != null)
+         configuration.setResultsFormat(ResultsFormat.valueOf(resultsFormat.toUpperCase(Locale.ENGLISH)));
+
+      configuration.setWarmupIterations(Integer.getInteger(WARMUP_ITERATIONS_PROPERTY, configuration.getWarmupIterations()));
+      configuration.setRepetitions(Integer.getInteger(REPETITIONS_PROPERTY, configuration.getRepetitions()));
+      configuration.setAdaptiveRepetitions(Boolean.getBoolean(ADAPTIVE_REPETITIONS_PROPERTY));
+      configuration.setMaximumRepetitions(Integer.getInteger(MAXIMUM_REPETITIONS_PROPERTY, configuration.getMaximumRepetitions()));
+
+      final String targetRelativeWidth = System.getProperty(TARGET_RELATIVE_WIDTH_PROPERTY);
+      if (targetRelativeWidth != null)
+         configuration.setTargetRelativeWidth(Double.parseDouble(targetRelativeWidth));
+
+      configuration.setSweep(Boolean.getBoolean(SWEEP_PROPERTY));
+      configuration.setSweepMaximumChangeSize(Integer.getInteger(SWEEP_MAXIMUM_CHANGE_SIZE_PROPERTY, configuration.getSweepMaximumChangeSize()));
+      configuration.setSweepSeedCount(Integer.getInteger(SWEEP_SEED_COUNT_PROPERTY, configuration.getSweepSeedCount()));
+
+      final String sweepOperations = System.getProperty(SWEEP_OPERATIONS_PROPERTY);
+      if (sweepOperations != null)
+         configuration.setSweepOperations(Arrays.asList(sweepOperations.trim().split("\\s*,\\s*")));
+
+      configuration.setScalability(Boolean.getBoolean(SCALABILITY_PROPERTY));
+
+      final String scalabilityCopies = System.getProperty(SCALABILITY_COPIES_PROPERTY);
+      if (scalabilityCopies != null)
+         configuration.setScalabilityCopies(Arrays.stream(scalabilityCopies.trim().split("\\s*,\\s*")).map(Integer::valueOf).collect(Collectors.toList()));
+
+      final String scalabilityEdgeDensity = System.getProperty(SCALABILITY_EDGE_DENSITY_PROPERTY);
+      if (scalabilityEdgeDensity != null)
+         configuration.setScalabilityEdgeDensity(Double.parseDouble(scalabilityEdgeDensity));
+
+      configuration.setScalabilityNestingDepth(Integer.getInteger(SCALABILITY_NESTING_DEPTH_PROPERTY, configuration.getScalabilityNestingDepth()));
+
+      final String baseline = System.getProperty(BASELINE_PROPERTY);
+      if (baseline != null)
+         configuration.setBaseline(new File(baseline));
+
+      final String regressionThreshold = System.getProperty(REGRESSION_THRESHOLD_PROPERTY);
+      if (regressionThreshold != null)
+         configuration.setRegressionThreshold(Double.parseDouble(regressionThreshold));
+
+      final String significanceLevel = System.getProperty(SIGNIFICANCE_LEVEL_PROPERTY);
+      if (significanceLevel != null)
+         configuration.setSignificanceLevel(Double.parseDouble(significanceLevel));
+
+      configuration.setPipeline(Boolean.getBoolean(PIPELINE_PROPERTY));
+      configuration.setLoaderThreadCount(Integer.getInteger(LOADER_THREAD_COUNT_PROPERTY, configuration.getLoaderThreadCount()));
+      configuration.setLoadQueueCapacity(Integer.getInteger(LOAD_QUEUE_CAPACITY_PROPERTY, configuration.getLoadQueueCapacity()));
+
+      final String loadProfile = System.getProperty(LOAD_PROFILE_PROPERTY);
+      if (loadProfile != null)
+         configuration.setLoadProfile(LoadProfile.valueOf(loadProfile.toUpperCase(Locale.ENGLISH)));
+
+      configuration.setBinaryCache(Boolean.getBoolean(BINARY_CACHE_PROPERTY));
+      configuration.setBinaryCacheMaximumSizeInMegabytes(
+            Integer.getInteger(BINARY_CACHE_MAXIMUM_SIZE_PROPERTY, configuration.getBinaryCacheMaximumSizeInMegabytes()));
+
+      return configuration;
+   }
+
+   public File getRootFolder()
+   {
+      return rootFolder;
+   }
+
+   public void setRootFolder(final File rootFolder)
+   {
+      this.rootFolder = rootFolder;
+   }
+
+   public boolean isBoundedMemory()
+   {
+      return boundedMemory;
+   }
+
+   public void setBoundedMemory(final boolean boundedMemory)
+   {
+      this.boundedMemory = boundedMemory;
+   }
+
+   public int getWorkerCount()
+   {
+      return workerCount;
+   }
+
+   /**
+    * Sets the number of worker threads. Non-positive values select the number of available processors.
+    */
+   public void setWorkerCount(final int workerCount)
+   {
+      this.workerCount = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+   }
+
+   public boolean isIncremental()
+   {
+      return incremental;
+   }
+
+   public void setIncremental(final boolean incremental)
+   {
+      this.incremental = incremental;
+   }
+
+   public ResultsFormat getResultsFormat()
+   {
+      return resultsFormat;
+   }
+
+   public void setResultsFormat(final ResultsFormat resultsFormat)
+   {
+      this.resultsFormat = resultsFormat;
+   }
+
+   public int getWarmupIterations()
+   {
+      return warmupIterations;
+   }
+
+   public void setWarmupIterations(final int warmupIterations)
+   {
+      this.warmupIterations = Math.max(0, warmupIterations);
+   }
+
+   public int getRepetitions()
+   {
+      return repetitions;
+   }
+
+   public void setRepetitions(final int repetitions)
+   {
+      if (repetitions < 1)
+         throw new IllegalArgumentException("At least one repetition is required: " + repetitions);
+      this.repetitions = repetitions;
+   }
+
+   public boolean isAdaptiveRepetitions()
+   {
+      return adaptiveRepetitions;
+   }
+
+   public void setAdaptiveRepetitions(final boolean adaptiveRepetitions)
+   {
+      this.adaptiveRepetitions = adaptiveRepetitions;
+   }
+
+   public int getMaximumRepetitions()
+   {
+      return maximumRepetitions;
+   }
+
+   public void setMaximumRepetitions(final int maximumRepetitions)
+   {
+      this.maximumRepetitions = maximumRepetitions;
+   }
+
+   public double getTargetRelativeWidth()
+   {
+      return targetRelativeWidth;
+   }
+
+   public void setTargetRelativeWidth(final double targetRelativeWidth)
+   {
+      this.targetRelativeWidth = targetRelativeWidth;
+   }
+
+   public boolean isSweep()
+   {
+      return sweep;
+   }
+
+   public void setSweep(final boolean sweep)
+   {
+      this.sweep = sweep;
+   }
+
+   public int getSweepMaximumChangeSize()
+   {
+      return sweepMaximumChangeSize;
+   }
+
+   public void setSweepMaximumChangeSize(final int sweepMaximumChangeSize)
+   {
+      this.sweepMaximumChangeSize = sweepMaximumChangeSize;
+   }
+
+   public int getSweepSeedCount()
+   {
+      return sweepSeedCount;
+   }
+
+   public void setSweepSeedCount(final int sweepSeedCount)
+   {
+      this.sweepSeedCount = sweepSeedCount;
+   }
+
+   public List<String> getSweepOperations()
+   {
+      return sweepOperations;
+   }
+
+   public void setSweepOperations(final List<String> sweepOperations)
+   {
+      this.sweepOperations = sweepOperations;
+   }
+
+   public boolean isScalability()
+   {
+      return scalability;
+   }
+
+   public void setScalability(final boolean scalability)
+   {
+      this.scalability = scalability;
+   }
+
+   public List<Integer> getScalabilityCopies()
+   {
+      return scalabilityCopies;
+   }
+
+   public void setScalabilityCopies(final List<Integer> scalabilityCopies)
+   {
+      this.scalabilityCopies = scalabilityCopies;
+   }
+
+   public double getScalabilityEdgeDensity()
+   {
+      return scalabilityEdgeDensity;
+   }
+
+   public void setScalabilityEdgeDensity(final double scalabilityEdgeDensity)
+   {
+      this.scalabilityEdgeDensity = scalabilityEdgeDensity;
+   }
+
+   public int getScalabilityNestingDepth()
+   {
+      return scalabilityNestingDepth;
+   }
+
+   public void setScalabilityNestingDepth(final int scalabilityNestingDepth)
+   {
+      this.scalabilityNestingDepth = scalabilityNestingDepth;
+   }
+
+   /**
+    * Returns the results file of the baseline run or null if the results are not compared with a baseline
+    */
+   public File getBaseline()
+   {
+      return baseline;
+   }
+
+   public void setBaseline(final File baseline)
+   {
+      this.baseline = baseline;
+   }
+
+   public double getRegressionThreshold()
+   {
+      return regressionThreshold;
+   }
+
+   public void setRegressionThreshold(final double regressionThreshold)
+   {
+      this.regressionThreshold = regressionThreshold;
+   }
+
+   public double getSignificanceLevel()
+   {
+      return significanceLevel;
+   }
+
+   public void setSignificanceLevel(final double significanceLevel)
+   {
+      this.significanceLevel = significanceLevel;
+   }
+
+   public boolean isPipeline()
+   {
+      return pipeline;
+   }
+
+   public void setPipeline(final boolean pipeline)
+   {
+      this.pipeline = pipeline;
+   }
+
+   public int getLoaderThreadCount()
+   {
+      return loaderThreadCount;
+   }
+
+   public void setLoaderThreadCount(final int loaderThreadCount)
+   {
+      this.loaderThreadCount = Math.max(1, loaderThreadCount);
+   }
+
+   public int getLoadQueueCapacity()
+   {
+      return loadQueueCapacity;
+   }
+
+   public void setLoadQueueCapacity(final int loadQueueCapacity)
+   {
+      this.loadQueueCapacity = Math.max(1, loadQueueCapacity);
+   }
+
+   public LoadProfile getLoadProfile()
+   {
+      return loadProfile;
+   }
+
+   public void setLoadProfile(final LoadProfile loadProfile)
+   {
+      this.loadProfile = loadProfile;
+   }
+
+   public boolean isBinaryCache()
+   {
+      return binaryCache;
+   }
+
+   public void setBinaryCache(final boolean binaryCache)
+   {
+      this.binaryCache = binaryCache;
+   }
+
+   public int getBinaryCacheMaximumSizeInMegabytes()
+   {
+      return binaryCacheMaximumSizeInMegabytes;
+   }
+
+   public void setBinaryCacheMaximumSizeInMegabytes(final int binaryCacheMaximumSizeInMegabytes)
+   {
+      this.binaryCacheMaximumSizeInMegabytes = binaryCacheMaximumSizeInMegabytes;
+   }
+}
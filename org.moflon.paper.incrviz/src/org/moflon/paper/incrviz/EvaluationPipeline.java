@@ -0,0 +1,402 @@
+package org.moflon.paper.incrviz;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.moflon.core.utilities.eMoflonEMFUtil;
+
+/**
+ * Evaluates the candidates of a set of files in stages that run concurrently, so that no file is parsed and no result
+ * is written by the measuring thread:
+ * <ol>
+ * <li>Loading: Loader threads load the files ahead, each file into its own resource set, resolve all cross-references
+ * and index the candidates of the file. The loaded files wait in a bounded queue.</li>
+ * <li>Measurement: A dedicated thread takes one loaded file after the other from the queue, measures its candidates and
+ * unloads it afterwards. The thread does nothing else and runs with maximum priority, while the loader threads run with
+ * minimum priority.</li>
+ * <li>Writing: The visualizer hands the results rows over to the writer thread of its {@link AsynchronousResultsSink}.</li>
+ * </ol>
+ * The files are discovered beforehand by the {@link ModelFileCollector}. The memory consumption is bounded by the
+ * capacity of the queue plus the files that are being loaded or measured.
+ * 
+ * After the run, the depth of the queue and the idle times of the stages are logged and appended to
+ * {@link #REPORT_FILE_NAME}. Progress reporting and cancellation are handled by the calling thread because
+ * {@link IProgressMonitor}s are not thread-safe.
+ */
+final class EvaluationPipeline
+{
+   static final String REPORT_FILE_NAME = "incrviz_pipeline.csv";
+
+   private static final long POLLING_INTERVAL_IN_MILLIS = 200;
+
+   private final Logger logger = Logger.getLogger(EvaluationPipeline.class);
+
+   private final Visualizer visualizer;
+
+   private final int loaderThreadCount;
+
+   private final int queueCapacity;
+
+   private final BlockingQueue<LoadedFile> loadedFiles;
+
+   private final AtomicBoolean canceled = new AtomicBoolean(false);
+
+   private final AtomicLong loadTimeInNanos = new AtomicLong();
+
+   private final AtomicLong loaderIdleTimeInNanos = new AtomicLong();
+
+   private final AtomicLong measurementTimeInNanos = new AtomicLong();
+
+   private final AtomicLong measurementIdleTimeInNanos = new AtomicLong();
+
+   private final AtomicLong queueDepthSum = new AtomicLong();
+
+   private final AtomicInteger queueDepthSampleCount = new AtomicInteger();
+
+   private final AtomicInteger maximumQueueDepth = new AtomicInteger();
+
+   EvaluationPipeline(final Visualizer visualizer, final int loaderThreadCount, final int queueCapacity)
+   {
+      this.visualizer = visualizer;
+      this.loaderThreadCount = loaderThreadCount;
+      this.queueCapacity = queueCapacity;
+      this.loadedFiles = new ArrayBlockingQueue<>(queueCapacity);
+   }
+
+   /**
+    * Returns the layout of the report, which has one row per run
+    */
+   static ResultsSchema getSchema()
+   {
+      final ResultsSchema schema = new ResultsSchema();
+      Arrays.asList("loaderThreadCount", "queueCapacity", "fileCount").forEach(name -> schema.add(name, ColumnType.INTEGER));
+      schema.add("meanQueueDepth", ColumnType.RATIO);
+      schema.add("maximumQueueDepth", ColumnType.INTEGER);
+      Arrays.asList("loadMillis", "loaderIdleMillis", "measurementMillis", "measurementIdleMillis", "writerIdleMillis")
+            .forEach(name -> schema.add(name, ColumnType.MILLIS));
+      schema.add("maximumWriterQueueDepth", ColumnType.INTEGER);
+      return schema;
+   }
+
+   /**
+    * Evaluates all candidates in the given files
+    * 
+    * @throws InterruptedException
+    *            if the user canceled the evaluation
+    */
+   public void run(final List<IFile> files, final IProgressMonitor monitor) throws InterruptedException
+   {
+      final ExecutorService loaderExecutor = Executors.newFixedThreadPool(loaderThreadCount, createThreadFactory("incrviz-loader", Thread.MIN_PRIORITY));
+      final ExecutorService measurementExecutor = Executors.newSingleThreadExecutor(createThreadFactory("incrviz-measurement", Thread.MAX_PRIORITY));
+      try
+      {
+         monitor.beginTask(String.format("Collect visualization data of %d files using %d loaders", files.size(), loaderThreadCount), files.size());
+
+         final AtomicInteger nextFile = new AtomicInteger(0);
+         final List<Future<?>> loaderFutures = new ArrayList<>();
+         for (int i = 0; i < loaderThreadCount; ++i)
+         {
+            // Indexing uses the diagram text providers, which are not thread-safe
+            final Visualizer loaderVisualizer = visualizer.createWorker();
+            loaderFutures.add(loaderExecutor.submit(() -> {
+               loadFiles(files, nextFile, loaderVisualizer);
+               return null;
+            }));
+         }
+
+         final AtomicInteger measuredFiles = new AtomicInteger(0);
+         final Future<?> measurementFuture = measurementExecutor.submit(() -> measureFiles(files.size(), measuredFiles));
+         awaitCompletion(measurementFuture, loaderFutures, measuredFiles, monitor);
+      } finally
+      {
+         canceled.set(true);
+         loaderExecutor.shutdownNow();
+         measurementExecutor.shutdownNow();
+         loaderExecutor.awaitTermination(1, TimeUnit.MINUTES);
+         measurementExecutor.awaitTermination(1, TimeUnit.MINUTES);
+         unloadRemainingFiles();
+         report(files.size());
+      }
+   }
+
+   /**
+    * Loads the files of the given list that no other loader has taken yet and puts them into the queue
+    */
+   private void loadFiles(final List<IFile> files, final AtomicInteger nextFile, final Visualizer loaderVisualizer) throws InterruptedException
+   {
+      int fileIndex;
+      while (!canceled.get() && (fileIndex = nextFile.getAndIncrement()) < files.size())
+      {
+         final long loadStart = System.nanoTime();
+         final LoadedFile loadedFile = load(files.get(fileIndex), loaderVisualizer);
+         final long loadEnd = System.nanoTime();
+         loadTimeInNanos.addAndGet(loadEnd - loadStart);
+
+         try
+         {
+            loadedFiles.put(loadedFile);
+         } catch (final InterruptedException e)
+         {
+            loadedFile.unload();
+            throw e;
+         }
+         loaderIdleTimeInNanos.addAndGet(System.nanoTime() - loadEnd);
+      }
+   }
+
+   private LoadedFile load(final IFile file, final Visualizer loaderVisualizer)
+   {
+      final ResourceSet resourceSet = eMoflonEMFUtil.createDefaultResourceSet();
+      final CandidateIndex candidateIndex = new CandidateIndex();
+      try
+      {
+         final Resource resource = visualizer.getModelLoader().load(file, resourceSet);
+
+         // Loads all referenced files now so that no proxy needs to be resolved while measuring
+         EcoreUtil.resolveAll(resourceSet);
+
+         new CandidateDiscovery(candidateIndex, loaderVisualizer, new NullProgressMonitor()).indexResource(file, resource);
+      } catch (final RuntimeException e)
+      {
+         logException(e);
+      }
+      return new LoadedFile(file, resourceSet, candidateIndex);
+   }
+
+   /**
+    * Takes the given number of loaded files from the queue and measures their candidates
+    */
+   private void measureFiles(final int fileCount, final AtomicInteger measuredFiles)
+   {
+      try
+      {
+         while (measuredFiles.get() < fileCount && !canceled.get())
+         {
+            final int queueDepth = loadedFiles.size();
+            queueDepthSum.addAndGet(queueDepth);
+            queueDepthSampleCount.incrementAndGet();
+            maximumQueueDepth.accumulateAndGet(queueDepth, Math::max);
+
+            final long idleStart = System.nanoTime();
+            final LoadedFile loadedFile = loadedFiles.poll(POLLING_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS);
+            final long idleEnd = System.nanoTime();
+            measurementIdleTimeInNanos.addAndGet(idleEnd - idleStart);
+            if (loadedFile == null)
+               continue;
+
+            measure(loadedFile);
+            measurementTimeInNanos.addAndGet(System.nanoTime() - idleEnd);
+            measuredFiles.incrementAndGet();
+         }
+      } catch (final InterruptedException e)
+      {
+         // The run has been canceled
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private void measure(final LoadedFile loadedFile)
+   {
+      logger.info("Collecting statistics in " + loadedFile.file);
+      try
+      {
+         for (final Candidate candidate : loadedFile.candidateIndex.getCandidates())
+         {
+            if (canceled.get())
+               break;
+
+            try
+            {
+               visualizer.visualize(loadedFile.candidateIndex.resolve(candidate), candidate);
+            } catch (final UncheckedIOException e)
+            {
+               // The results cannot be written any more
+               throw e;
+            } catch (final Exception e)
+            {
+               logException(e);
+            }
+         }
+      } finally
+      {
+         visualizer.clearCaches();
+         loadedFile.unload();
+      }
+   }
+
+   /**
+    * Waits until the measurement stage is done while forwarding the progress and the cancellation state between the
+    * monitor and the stages
+    */
+   private void awaitCompletion(final Future<?> measurementFuture, final List<Future<?>> loaderFutures, final AtomicInteger measuredFiles,
+         final IProgressMonitor monitor) throws InterruptedException
+   {
+      int reported = 0;
+      while (!measurementFuture.isDone())
+      {
+         Thread.sleep(POLLING_INTERVAL_IN_MILLIS);
+         final int measuredNow = measuredFiles.get();
+         monitor.worked(measuredNow - reported);
+         reported = measuredNow;
+
+         if (monitor.isCanceled())
+         {
+            canceled.set(true);
+         }
+         checkLoaders(loaderFutures);
+      }
+      monitor.worked(measuredFiles.get() - reported);
+
+      if (monitor.isCanceled())
+         throw new InterruptedException("User canceled");
+
+      try
+      {
+         measurementFuture.get();
+      } catch (final ExecutionException e)
+      {
+         if (e.getCause() instanceof UncheckedIOException)
+            throw (UncheckedIOException) e.getCause();
+         throw new IllegalStateException("Measurement stage failed", e.getCause());
+      }
+   }
+
+   /**
+    * Stops the run if a loader has terminated abnormally because its files would never arrive at the measurement stage
+    */
+   private void checkLoaders(final List<Future<?>> loaderFutures) throws InterruptedException
+   {
+      for (final Future<?> loaderFuture : loaderFutures)
+      {
+         if (loaderFuture.isDone() && !canceled.get())
+         {
+            try
+            {
+               loaderFuture.get();
+            } catch (final ExecutionException e)
+            {
+               canceled.set(true);
+               throw new IllegalStateException("Loader stage failed", e.getCause());
+            }
+         }
+      }
+   }
+
+   private void unloadRemainingFiles()
+   {
+      LoadedFile loadedFile;
+      while ((loadedFile = loadedFiles.poll()) != null)
+      {
+         loadedFile.unload();
+      }
+   }
+
+   private void report(final int fileCount)
+   {
+      final AsynchronousResultsSink resultsWriter = visualizer.getAsynchronousResultsSink();
+      final int sampleCount = queueDepthSampleCount.get();
+      final ResultRow row = new ResultRow(getSchema().size());
+      row.addInteger(loaderThreadCount).addInteger(queueCapacity).addInteger(fileCount);
+      if (sampleCount > 0)
+         row.addRatio((double) queueDepthSum.get() / sampleCount);
+      else
+         row.addMissing();
+      row.addInteger(maximumQueueDepth.get());
+      row.addMillis(loadTimeInNanos.get() / 1e6).addMillis(loaderIdleTimeInNanos.get() / 1e6);
+      row.addMillis(measurementTimeInNanos.get() / 1e6).addMillis(measurementIdleTimeInNanos.get() / 1e6);
+      if (resultsWriter != null)
+         row.addMillis(resultsWriter.getIdleTimeInNanos() / 1e6).addInteger(resultsWriter.getMaximumQueueDepth());
+      else
+         row.addMissing().addMissing();
+
+      logger.info(String.format("Pipeline of %d files - queue depth: mean %.2f, max %d - idle time of loaders: %d ms - idle time of measurement: %d ms",
+            fileCount, sampleCount > 0 ? (double) queueDepthSum.get() / sampleCount : 0.0, maximumQueueDepth.get(),
+            TimeUnit.NANOSECONDS.toMillis(loaderIdleTimeInNanos.get()), TimeUnit.NANOSECONDS.toMillis(measurementIdleTimeInNanos.get())));
+
+      try
+      {
+         final File reportFile = new File(visualizer.getRootFolder(), REPORT_FILE_NAME);
+         reportFile.getParentFile().mkdirs();
+         final List<String> lines = new ArrayList<>();
+         if (!reportFile.exists())
+         {
+            lines.add(String.join(ResultRow.CSV_SEP, getSchema().getNames()));
+         }
+         lines.add(row.toCsv());
+         FileUtils.writeLines(reportFile, StandardCharsets.UTF_8.name(), lines, true);
+      } catch (final IOException e)
+      {
+         logException(e);
+      }
+   }
+
+   private static ThreadFactory createThreadFactory(final String namePrefix, final int priority)
+   {
+      final AtomicInteger threadCounter = new AtomicInteger(0);
+      return runnable -> {
+         final Thread thread = new Thread(runnable, namePrefix + "-" + threadCounter.incrementAndGet());
+         thread.setDaemon(true);
+         thread.setPriority(priority);
+         return thread;
+      };
+   }
+
+   private void logException(final Exception e)
+   {
+      logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+      EvaluationStatistics.getInstance().recordError();
+   }
+
+   /**
+    * A file whose candidates have been indexed, together with the resource set that holds it
+    */
+   private static final class LoadedFile
+   {
+      private final IFile file;
+
+      private final ResourceSet resourceSet;
+
+      private final CandidateIndex candidateIndex;
+
+      private LoadedFile(final IFile file, final ResourceSet resourceSet, final CandidateIndex candidateIndex)
+      {
+         this.file = file;
+         this.resourceSet = resourceSet;
+         this.candidateIndex = candidateIndex;
+      }
+
+      private void unload()
+      {
+         for (final Resource resource : resourceSet.getResources())
+         {
+            resource.unload();
+         }
+         resourceSet.getResources().clear();
+      }
+   }
+}
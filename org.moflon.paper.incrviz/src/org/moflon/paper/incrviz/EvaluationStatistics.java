@@ -0,0 +1,316 @@
+package org.moflon.paper.incrviz;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Collects live statistics of the running evaluation and publishes them as {@link EvaluationStatisticsMXBean}.
+ *
+ * All workers of an evaluation share the instance of the JVM ({@link #getInstance()}). The latency percentiles refer to
+ * the most recent {@link #LATENCY_WINDOW_SIZE} runs per type and mode, so that they follow changes during a long
+ * evaluation.
+ */
+final class EvaluationStatistics implements EvaluationStatisticsMXBean
+{
+   static final String OBJECT_NAME = "org.moflon.paper.incrviz:type=EvaluationStatistics";
+
+   static final String BATCH = "batch";
+
+   static final String INCREMENTAL = "incremental";
+
+   /**
+    * Mode of the batch transformations of changed TGG rules (RQ2), which are kept apart from the batch transformations of
+    * the unchanged models (RQ1)
+    */
+   static final String BATCH_AFTER_CHANGE = "batchAfterChange";
+
+   static final long THROUGHPUT_INTERVAL_IN_MILLIS = 10000;
+
+   static final int LATENCY_WINDOW_SIZE = 1024;
+
+   private static final int COMPLETION_WINDOW_SIZE = 4096;
+
+   private static final EvaluationStatistics INSTANCE = new EvaluationStatistics();
+
+   private final Logger logger = Logger.getLogger(EvaluationStatistics.class);
+
+   private final AtomicLong evaluatedCandidateCount = new AtomicLong();
+
+   private final AtomicLong errorCount = new AtomicLong();
+
+   private final Map<String, LatencyWindow> latencyWindows = new ConcurrentSkipListMap<>();
+
+   private final Map<Thread, CandidateInProgress> candidatesInProgress = new ConcurrentHashMap<>();
+
+   private final long[] completionTimes = new long[COMPLETION_WINDOW_SIZE];
+
+   private int completionCount;
+
+   private long startTime;
+
+   private volatile String currentFile;
+
+   private String slowestCandidate;
+
+   private long slowestCandidateDuration;
+
+   private EvaluationStatistics()
+   {
+      reset();
+   }
+
+   public static EvaluationStatistics getInstance()
+   {
+      return INSTANCE;
+   }
+
+   /**
+    * Registers the statistics at the platform MBean server unless they are registered already
+    */
+   void register()
+   {
+      try
+      {
+         final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         final ObjectName objectName = new ObjectName(OBJECT_NAME);
+         if (!server.isRegistered(objectName))
+         {
+            server.registerMBean(this, objectName);
+         }
+      } catch (final InstanceAlreadyExistsException e)
+      {
+         // Registered concurrently
+      } catch (final JMException e)
+      {
+         logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+      }
+   }
+
+   /**
+    * Marks the given candidate as being evaluated by the current thread
+    */
+   void startCandidate(final Candidate candidate)
+   {
+      this.currentFile = candidate.getFile().getFullPath().toString();
+      this.candidatesInProgress.put(Thread.currentThread(), new CandidateInProgress(candidate, System.nanoTime()));
+   }
+
+   /**
+    * Marks the evaluation of the candidate of the current thread as finished
+    */
+   void finishCandidate()
+   {
+      final CandidateInProgress candidateInProgress = this.candidatesInProgress.remove(Thread.currentThread());
+      if (candidateInProgress == null)
+         return;
+
+      final long now = System.nanoTime();
+      this.evaluatedCandidateCount.incrementAndGet();
+      synchronized (this)
+      {
+         this.completionTimes[this.completionCount++ % COMPLETION_WINDOW_SIZE] = now;
+         final long duration = now - candidateInProgress.startTime;
+         if (duration > this.slowestCandidateDuration)
+         {
+            this.slowestCandidateDuration = duration;
+            this.slowestCandidate = candidateInProgress.toString();
+         }
+      }
+   }
+
+   /**
+    * Records the given wall-clock times (in nanoseconds) of runs of the given type and mode
+    */
+   void recordLatencies(final String type, final String mode, final double[] wallTimesInNanos)
+   {
+      this.latencyWindows.computeIfAbsent(type + "/" + mode, key -> new LatencyWindow(type, mode)).addAll(wallTimesInNanos);
+   }
+
+   void recordError()
+   {
+      this.errorCount.incrementAndGet();
+   }
+
+   @Override
+   public long getEvaluatedCandidateCount()
+   {
+      return this.evaluatedCandidateCount.get();
+   }
+
+   @Override
+   public synchronized double getCandidatesPerSecond()
+   {
+      final long now = System.nanoTime();
+      final long intervalStart = Math.max(this.startTime, now - TimeUnit.MILLISECONDS.toNanos(THROUGHPUT_INTERVAL_IN_MILLIS));
+      int recentCompletions = 0;
+      for (int i = 0; i < Math.min(this.completionCount, COMPLETION_WINDOW_SIZE); ++i)
+      {
+         if (this.completionTimes[i] >= intervalStart)
+            ++recentCompletions;
+      }
+      return perSecond(recentCompletions, now - intervalStart);
+   }
+
+   @Override
+   public synchronized double getAverageCandidatesPerSecond()
+   {
+      return perSecond(this.evaluatedCandidateCount.get(), System.nanoTime() - this.startTime);
+   }
+
+   @Override
+   public String getCurrentFile()
+   {
+      return this.currentFile;
+   }
+
+   @Override
+   public List<String> getCandidatesInProgress()
+   {
+      final List<String> result = new ArrayList<>();
+      this.candidatesInProgress.forEach((thread, candidateInProgress) -> result.add(thread.getName() + ": " + candidateInProgress));
+      return result;
+   }
+
+   @Override
+   public synchronized String getSlowestCandidate()
+   {
+      return this.slowestCandidate;
+   }
+
+   @Override
+   public synchronized long getSlowestCandidateDurationInMillis()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(this.slowestCandidateDuration);
+   }
+
+   @Override
+   public List<LatencyPercentiles> getLatencyPercentiles()
+   {
+      final List<LatencyPercentiles> result = new ArrayList<>();
+      this.latencyWindows.values().forEach(window -> result.add(window.getPercentiles()));
+      return result;
+   }
+
+   @Override
+   public long getHeapUsedInBytes()
+   {
+      return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+   }
+
+   @Override
+   public long getHeapMaximumInBytes()
+   {
+      return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+   }
+
+   @Override
+   public long getErrorCount()
+   {
+      return this.errorCount.get();
+   }
+
+   @Override
+   public synchronized void reset()
+   {
+      this.evaluatedCandidateCount.set(0);
+      this.errorCount.set(0);
+      this.latencyWindows.clear();
+      this.candidatesInProgress.clear();
+      this.completionCount = 0;
+      this.startTime = System.nanoTime();
+      this.currentFile = null;
+      this.slowestCandidate = null;
+      this.slowestCandidateDuration = 0;
+   }
+
+   private static double perSecond(final long count, final long durationInNanos)
+   {
+      return durationInNanos > 0 ? count * 1e9 / durationInNanos : 0.0;
+   }
+
+   private static final class CandidateInProgress
+   {
+      private final Candidate candidate;
+
+      private final long startTime;
+
+      private CandidateInProgress(final Candidate candidate, final long startTime)
+      {
+         this.candidate = candidate;
+         this.startTime = startTime;
+      }
+
+      @Override
+      public String toString()
+      {
+         return String.format("%s#%s (%s, %d ms)", candidate.getFile().getFullPath(), candidate.getUriFragment(), candidate.getType(),
+               TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+      }
+   }
+
+   /**
+    * Ring buffer of the most recent wall-clock times of one type and mode
+    */
+   private static final class LatencyWindow
+   {
+      private final String type;
+
+      private final String mode;
+
+      private final long[] wallTimesInNanos = new long[LATENCY_WINDOW_SIZE];
+
+      private int count;
+
+      private LatencyWindow(final String type, final String mode)
+      {
+         this.type = type;
+         this.mode = mode;
+      }
+
+      synchronized void addAll(final double[] values)
+      {
+         for (final double value : values)
+         {
+            this.wallTimesInNanos[this.count++ % LATENCY_WINDOW_SIZE] = (long) value;
+         }
+      }
+
+      LatencyPercentiles getPercentiles()
+      {
+         final long[] sortedValues;
+         synchronized (this)
+         {
+            sortedValues = Arrays.copyOf(this.wallTimesInNanos, Math.min(this.count, LATENCY_WINDOW_SIZE));
+         }
+         Arrays.sort(sortedValues);
+         return new LatencyPercentiles(type, mode, sortedValues.length, percentileInMillis(sortedValues, 50), percentileInMillis(sortedValues, 90),
+               percentileInMillis(sortedValues, 99), percentileInMillis(sortedValues, 100));
+      }
+
+      /**
+       * Returns the given percentile of the given sorted values (nearest-rank method), converted to milliseconds
+       */
+      private static double percentileInMillis(final long[] sortedValues, final int percentile)
+      {
+         if (sortedValues.length == 0)
+            return Double.NaN;
+         final int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+         return sortedValues[Math.max(rank, 1) - 1] / 1e6;
+      }
+   }
+}
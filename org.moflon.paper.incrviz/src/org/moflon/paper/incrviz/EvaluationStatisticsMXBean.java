@@ -0,0 +1,131 @@
+package org.moflon.paper.incrviz;
+
+import java.beans.ConstructorProperties;
+import java.util.List;
+
+/**
+ * Live statistics of the running evaluation, which are published under {@link EvaluationStatistics#OBJECT_NAME}, e.g.,
+ * for JConsole or a metrics scraper.
+ */
+public interface EvaluationStatisticsMXBean
+{
+   /**
+    * Latency percentiles of the most recent runs of one type of model and one mode (batch, incremental or batch after a
+    * change)
+    */
+   final class LatencyPercentiles
+   {
+      private final String type;
+
+      private final String mode;
+
+      private final int sampleCount;
+
+      private final double p50InMillis;
+
+      private final double p90InMillis;
+
+      private final double p99InMillis;
+
+      private final double maximumInMillis;
+
+      @ConstructorProperties({ "type", "mode", "sampleCount", "p50InMillis", "p90InMillis", "p99InMillis", "maximumInMillis" })
+      public LatencyPercentiles(final String type, final String mode, final int sampleCount, final double p50InMillis, final double p90InMillis,
+            final double p99InMillis, final double maximumInMillis)
+      {
+         this.type = type;
+         this.mode = mode;
+         this.sampleCount = sampleCount;
+         this.p50InMillis = p50InMillis;
+         this.p90InMillis = p90InMillis;
+         this.p99InMillis = p99InMillis;
+         this.maximumInMillis = maximumInMillis;
+      }
+
+      public String getType()
+      {
+         return type;
+      }
+
+      public String getMode()
+      {
+         return mode;
+      }
+
+      public int getSampleCount()
+      {
+         return sampleCount;
+      }
+
+      public double getP50InMillis()
+      {
+         return p50InMillis;
+      }
+
+      public double getP90InMillis()
+      {
+         return p90InMillis;
+      }
+
+      public double getP99InMillis()
+      {
+         return p99InMillis;
+      }
+
+      public double getMaximumInMillis()
+      {
+         return maximumInMillis;
+      }
+   }
+
+   /**
+    * Number of candidates that have been evaluated since the start of the evaluation
+    */
+   long getEvaluatedCandidateCount();
+
+   /**
+    * Number of candidates per second during the last seconds (see {@link EvaluationStatistics#THROUGHPUT_INTERVAL_IN_MILLIS})
+    */
+   double getCandidatesPerSecond();
+
+   /**
+    * Number of candidates per second since the start of the evaluation
+    */
+   double getAverageCandidatesPerSecond();
+
+   /**
+    * Path of the file of the candidate that has been started most recently
+    */
+   String getCurrentFile();
+
+   /**
+    * Candidates that are currently evaluated, one per worker thread, with the time spent on them so far
+    */
+   List<String> getCandidatesInProgress();
+
+   /**
+    * Candidate that took longest to evaluate since the start of the evaluation
+    */
+   String getSlowestCandidate();
+
+   long getSlowestCandidateDurationInMillis();
+
+   /**
+    * Latency percentiles per type of model and mode
+    */
+   List<LatencyPercentiles> getLatencyPercentiles();
+
+   long getHeapUsedInBytes();
+
+   long getHeapMaximumInBytes();
+
+   /**
+    * Number of problems that have been logged since the start of the evaluation
+    */
+   long getErrorCount();
+
+   /**
+    * Discards all statistics
+    */
+   void reset();
+}
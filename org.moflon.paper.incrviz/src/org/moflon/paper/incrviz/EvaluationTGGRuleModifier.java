@@ -1,6 +1,7 @@
 package org.moflon.paper.incrviz;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -10,6 +11,8 @@ import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.moflon.tgg.language.TGGRule;
 
+import SDMLanguage.patterns.BindingOperator;
+import SDMLanguage.patterns.LinkVariable;
 import SDMLanguage.patterns.ObjectVariable;
 import SDMLanguage.patterns.PatternsFactory;
 
@@ -70,19 +73,85 @@ public class EvaluationTGGRuleModifier
       return addedObjectVariables;
    }
 
-   public void undoRemove(TGGRule tggRule, List<ObjectVariable> removedObjectVariables)
+   /**
+    * Renames up to count distinct, randomly selected object variables
+    */
+   public List<ObjectVariable> performChangeObjectVariableNames(final TGGRule rule, final int count)
    {
-      tggRule.getObjectVariable().addAll(removedObjectVariables);
+      final List<ObjectVariable> renamedObjectVariables = selectDistinct(rule.getObjectVariable(), count);
+
+      for (final ObjectVariable renamedObjectVariable : renamedObjectVariables)
+      {
+         renamedObjectVariable.setName(renamedObjectVariable.getName() + RENAME_CHANGE_SUFFIX);
+      }
+
+      return renamedObjectVariables;
+   }
+
+   public List<LinkVariable> performChangeAddLinkVariables(final TGGRule tggRule, final int count)
+   {
+      final List<LinkVariable> addedLinkVariables = new ArrayList<>();
+      final EList<ObjectVariable> objectVariables = tggRule.getObjectVariable();
+      if (objectVariables.isEmpty())
+         return addedLinkVariables;
+
+      final LinkVariable templateVariable = tggRule.getLinkVariable().isEmpty() ? null : tggRule.getLinkVariable().get(0);
+
+      for (int i = 1; i <= count; ++i)
+      {
+         final LinkVariable addedLinkVariable = templateVariable != null ? EcoreUtil.copy(templateVariable) : PatternsFactory.eINSTANCE.createLinkVariable();
+         tggRule.getLinkVariable().add(addedLinkVariable);
+         addedLinkVariable.setName("New LV" + i);
+         addedLinkVariable.setSource(objectVariables.get(random.nextInt(objectVariables.size())));
+         addedLinkVariable.setTarget(objectVariables.get(random.nextInt(objectVariables.size())));
+
+         addedLinkVariables.add(addedLinkVariable);
+      }
+
+      return addedLinkVariables;
+   }
+
+   public List<LinkVariable> performRemoveLinkVariables(final TGGRule rule, final int count)
+   {
+      final List<LinkVariable> removedLinkVariables = new ArrayList<>();
+
+      for (int i = 0; i < count && !rule.getLinkVariable().isEmpty(); ++i)
+      {
+         final EList<LinkVariable> linkVariables = rule.getLinkVariable();
+         final LinkVariable removedLinkVariable = linkVariables.get(random.nextInt(linkVariables.size()));
+         EcoreUtil.remove(removedLinkVariable);
+         removedLinkVariables.add(removedLinkVariable);
+      }
+
+      return removedLinkVariables;
    }
 
-   public void undoRename(ObjectVariable renamedObjectVariable)
+   /**
+    * Toggles the binding operator of up to count distinct, randomly selected object variables between 'check only' and
+    * 'create'
+    */
+   public List<ObjectVariable> performChangeBindingOperators(final TGGRule rule, final int count)
    {
-      renamedObjectVariable.setName(renamedObjectVariable.getName().replace(RENAME_CHANGE_SUFFIX, ""));
+      final List<ObjectVariable> changedObjectVariables = selectDistinct(rule.getObjectVariable(), count);
+
+      for (final ObjectVariable changedObjectVariable : changedObjectVariables)
+      {
+         final BindingOperator bindingOperator = changedObjectVariable.getBindingOperator() == BindingOperator.CREATE ? BindingOperator.CHECK_ONLY
+               : BindingOperator.CREATE;
+         changedObjectVariable.setBindingOperator(bindingOperator);
+      }
+
+      return changedObjectVariables;
    }
 
-   public void undoAdd(List<ObjectVariable> addedObjectVariables)
+   /**
+    * Returns min(count, size) distinct elements of the given list in random order (sampling without replacement)
+    */
+   private <T> List<T> selectDistinct(final List<T> elements, final int count)
    {
-      addedObjectVariables.forEach(ov -> EcoreUtil.delete(ov));
+      final List<Integer> indices = IntStream.range(0, elements.size()).boxed().collect(Collectors.toList());
+      Collections.shuffle(indices, random);
+      return indices.subList(0, Math.min(Math.max(count, 0), indices.size())).stream().map(elements::get).collect(Collectors.toList());
    }
 
 }
@@ -0,0 +1,73 @@
+package org.moflon.paper.incrviz;
+
+import java.io.IOException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.moflon.core.utilities.eMoflonEMFUtil;
+
+/**
+ * Loads and evaluates models using its own {@link ResourceSet} and its own {@link Visualizer}.
+ * 
+ * A worker must only be used by one thread at a time, but several workers may be used concurrently.
+ */
+final class EvaluationWorker
+{
+   private final Visualizer visualizer;
+
+   private final ResourceSet resourceSet;
+
+   EvaluationWorker(final Visualizer visualizer)
+   {
+      this.visualizer = visualizer;
+      this.resourceSet = eMoflonEMFUtil.createDefaultResourceSet();
+   }
+
+   public Visualizer getVisualizer()
+   {
+      return visualizer;
+   }
+
+   /**
+    * Loads the given file into the resource set of this worker and returns an index of its candidates
+    */
+   public CandidateIndex indexFile(final IFile file, final IProgressMonitor monitor)
+   {
+      final CandidateIndex candidateIndex = new CandidateIndex();
+      new CandidateDiscovery(candidateIndex, visualizer, monitor).indexResource(file, load(file));
+      return candidateIndex;
+   }
+
+   /**
+    * Measures the given candidate, loading its file into the resource set of this worker if necessary
+    */
+   public void evaluate(final Candidate candidate) throws IOException
+   {
+      final EObject element = load(candidate.getFile()).getEObject(candidate.getUriFragment());
+      if (element == null)
+         throw new IllegalStateException("Cannot resolve candidate: " + candidate);
+
+      visualizer.visualize(element, candidate);
+   }
+
+   /**
+    * Unloads all resources of this worker and drops all provider caches that may still reference them
+    */
+   public void unload()
+   {
+      visualizer.clearCaches();
+      for (final Resource resource : resourceSet.getResources())
+      {
+         resource.unload();
+      }
+      resourceSet.getResources().clear();
+   }
+
+   private Resource load(final IFile file)
+   {
+      return visualizer.getModelLoader().load(file, resourceSet);
+   }
+}
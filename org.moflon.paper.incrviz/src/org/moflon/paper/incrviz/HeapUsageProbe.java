@@ -0,0 +1,55 @@
+package org.moflon.paper.incrviz;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the peak heap usage between two points in time using the memory pool MX beans of the running JVM.
+ * 
+ * The peak is the sum of the peaks of the individual heap pools, which is an upper bound of the actual peak usage.
+ */
+final class HeapUsageProbe
+{
+   private final List<MemoryPoolMXBean> heapPools;
+
+   HeapUsageProbe()
+   {
+      this.heapPools = ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+   }
+
+   /**
+    * Starts a new measurement interval
+    */
+   public void reset()
+   {
+      heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+   }
+
+   /**
+    * Returns the peak heap usage (in bytes) since the last invocation of {@link #reset()}
+    */
+   public long getPeakHeapUsage()
+   {
+      long peakUsage = 0;
+      for (final MemoryPoolMXBean pool : heapPools)
+      {
+         final MemoryUsage usage = pool.getPeakUsage();
+         if (usage != null)
+            peakUsage += usage.getUsed();
+      }
+      return peakUsage;
+   }
+
+   /**
+    * Returns the current heap usage (in bytes)
+    */
+   public long getCurrentHeapUsage()
+   {
+      return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+   }
+}
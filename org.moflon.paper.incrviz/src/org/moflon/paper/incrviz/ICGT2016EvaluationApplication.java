@@ -0,0 +1,289 @@
+package org.moflon.paper.incrviz;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Headless entry point of the evaluation, e.g., for batch servers. The application does not start a workbench.
+ *
+ * Usage: eclipse -nosplash -application org.moflon.paper.incrviz.evaluation -data &lt;workspace&gt; [-import &lt;folder&gt;]
+ * [-projects &lt;name,...&gt;] [-repetitions &lt;n&gt;] [-warmup &lt;n&gt;] [-output &lt;folder&gt;] [-baseline &lt;results file&gt;]
+ *
+ * The import folder (or each of its subfolders) that contains a project description is imported into the workspace
+ * without copying it. The evaluation covers the given projects or, if none are given, all open projects of the
+ * workspace. If a baseline is given, the results of this run (incrviz_run_results.csv) are compared with it (see
+ * {@link RegressionGate}). All other settings can be given as system properties (see {@link EvaluationConfiguration}).
+ */
+public class ICGT2016EvaluationApplication implements IApplication
+{
+   /**
+    * Exit code if the evaluation has failed or has been canceled
+    */
+   public static final Integer EXIT_FAILURE = 1;
+
+   /**
+    * Exit code if the arguments are invalid or there is no project to evaluate
+    */
+   public static final Integer EXIT_INVALID_ARGUMENTS = 2;
+
+   /**
+    * Exit code if the comparison with the baseline has revealed a regression
+    */
+   public static final Integer EXIT_REGRESSION = RegressionGate.EXIT_REGRESSION;
+
+   /**
+    * Exit code if the comparison with the baseline could not be completed
+    */
+   public static final Integer EXIT_REGRESSION_CHECK_FAILED = RegressionGate.EXIT_INCOMPLETE;
+
+   private static final String USAGE = "Arguments: [-import <folder>] [-projects <name,...>] [-repetitions <n>] [-warmup <n>] [-output <folder>]"
+         + " [-baseline <results file>]";
+
+   private final Logger logger = Logger.getLogger(ICGT2016EvaluationApplication.class);
+
+   private final List<File> importFolders = new ArrayList<>();
+
+   private final List<String> projectNames = new ArrayList<>();
+
+   private volatile ICGT2016EvaluationJob job;
+
+   @Override
+   public Object start(final IApplicationContext context) throws Exception
+   {
+      final String[] arguments = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+      context.applicationRunning();
+
+      final EvaluationConfiguration configuration = EvaluationConfiguration.fromSystemProperties();
+      try
+      {
+         parseArguments(arguments != null ? arguments : new String[0], configuration);
+      } catch (final IllegalArgumentException e)
+      {
+         logger.error(e.getMessage());
+         logger.error(USAGE);
+         return EXIT_INVALID_ARGUMENTS;
+      }
+
+      final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+      final IProgressMonitor monitor = new NullProgressMonitor();
+      final List<IProject> projects;
+      try
+      {
+         disableAutoBuilding(workspace);
+         for (final File importFolder : importFolders)
+         {
+            importProjects(workspace, importFolder, monitor);
+         }
+         projects = selectProjects(workspace);
+      } catch (final CoreException e)
+      {
+         logException(e);
+         return EXIT_FAILURE;
+      }
+
+      if (projects.isEmpty())
+      {
+         logger.error("No projects to evaluate in workspace " + workspace.getRoot().getLocation());
+         return EXIT_INVALID_ARGUMENTS;
+      }
+
+      logger.info(String.format("Evaluating %d projects, writing results to %s", projects.size(), configuration.getRootFolder()));
+      final ICGT2016EvaluationJob evaluationJob = new ICGT2016EvaluationJob("Performing evaluation", projects, new Visualizer(configuration),
+            configuration);
+      this.job = evaluationJob;
+      try
+      {
+         evaluationJob.schedule();
+         evaluationJob.join();
+      } finally
+      {
+         this.job = null;
+         saveWorkspace(workspace, monitor);
+      }
+
+      final IStatus result = evaluationJob.getResult();
+      logger.info("Evaluation finished: " + result);
+      if (result == null || !result.isOK())
+         return EXIT_FAILURE;
+      if (evaluationJob.isRegressionCheckFailed())
+         return EXIT_REGRESSION_CHECK_FAILED;
+      return evaluationJob.isRegressionDetected() ? EXIT_REGRESSION : EXIT_OK;
+   }
+
+   @Override
+   public void stop()
+   {
+      final ICGT2016EvaluationJob evaluationJob = this.job;
+      if (evaluationJob != null)
+      {
+         evaluationJob.cancel();
+      }
+   }
+
+   private void parseArguments(final String[] arguments, final EvaluationConfiguration configuration)
+   {
+      for (int i = 0; i < arguments.length; ++i)
+      {
+         final String argument = arguments[i];
+         switch (argument)
+         {
+         case "-import":
+            final File importFolder = new File(getValue(arguments, ++i, argument));
+            if (!importFolder.isDirectory())
+               throw new IllegalArgumentException("Import folder does not exist: " + importFolder);
+            importFolders.add(importFolder);
+            break;
+         case "-projects":
+            projectNames.addAll(Arrays.asList(getValue(arguments, ++i, argument).trim().split("\\s*,\\s*")));
+            break;
+         case "-repetitions":
+            configuration.setRepetitions(parseInteger(getValue(arguments, ++i, argument), argument));
+            break;
+         case "-warmup":
+            configuration.setWarmupIterations(parseInteger(getValue(arguments, ++i, argument), argument));
+            break;
+         case "-output":
+            configuration.setRootFolder(new File(getValue(arguments, ++i, argument)));
+            break;
+         case "-baseline":
+            final File baseline = new File(getValue(arguments, ++i, argument));
+            if (!baseline.isFile())
+               throw new IllegalArgumentException("Baseline does not exist: " + baseline);
+            configuration.setBaseline(baseline);
+            break;
+         default:
+            logger.warn("Ignoring unknown argument: " + argument);
+         }
+      }
+   }
+
+   private static String getValue(final String[] arguments, final int index, final String option)
+   {
+      if (index >= arguments.length)
+         throw new IllegalArgumentException("Missing value of " + option);
+      return arguments[index];
+   }
+
+   private static int parseInteger(final String value, final String option)
+   {
+      try
+      {
+         return Integer.parseInt(value);
+      } catch (final NumberFormatException e)
+      {
+         throw new IllegalArgumentException("Invalid value of " + option + ": " + value);
+      }
+   }
+
+   /**
+    * Prevents the builders of the imported projects from running during the evaluation
+    */
+   private static void disableAutoBuilding(final IWorkspace workspace) throws CoreException
+   {
+      final IWorkspaceDescription description = workspace.getDescription();
+      if (description.isAutoBuilding())
+      {
+         description.setAutoBuilding(false);
+         workspace.setDescription(description);
+      }
+   }
+
+   /**
+    * Imports and opens the project in the given folder and the projects in its subfolders
+    */
+   private void importProjects(final IWorkspace workspace, final File folder, final IProgressMonitor monitor) throws CoreException
+   {
+      final List<File> projectFolders = new ArrayList<>();
+      projectFolders.add(folder);
+      final File[] subfolders = folder.listFiles(File::isDirectory);
+      if (subfolders != null)
+      {
+         Arrays.sort(subfolders);
+         projectFolders.addAll(Arrays.asList(subfolders));
+      }
+
+      for (final File projectFolder : projectFolders)
+      {
+         final File descriptionFile = new File(projectFolder, IProjectDescription.DESCRIPTION_FILE_NAME);
+         if (!descriptionFile.isFile())
+            continue;
+
+         final IProjectDescription description = workspace.loadProjectDescription(new Path(descriptionFile.getAbsolutePath()));
+         final IPath projectLocation = new Path(projectFolder.getAbsolutePath());
+         if (workspace.getRoot().getLocation().equals(projectLocation.removeLastSegments(1)))
+         {
+            // Projects in the workspace folder must use the default location
+            description.setLocation(null);
+         }
+
+         final IProject project = workspace.getRoot().getProject(description.getName());
+         if (!project.exists())
+         {
+            logger.info("Importing project " + description.getName() + " from " + projectFolder);
+            project.create(description, monitor);
+         }
+         if (!project.isOpen())
+         {
+            project.open(monitor);
+         }
+      }
+   }
+
+   private List<IProject> selectProjects(final IWorkspace workspace)
+   {
+      final List<IProject> projects = new ArrayList<>();
+      if (projectNames.isEmpty())
+      {
+         for (final IProject project : workspace.getRoot().getProjects())
+         {
+            if (project.isOpen())
+               projects.add(project);
+         }
+      } else
+      {
+         for (final String projectName : projectNames)
+         {
+            final IProject project = workspace.getRoot().getProject(projectName);
+            if (project.isOpen())
+               projects.add(project);
+            else
+               logger.warn("Skipping project that does not exist or is closed: " + projectName);
+         }
+      }
+      return projects;
+   }
+
+   private void saveWorkspace(final IWorkspace workspace, final IProgressMonitor monitor)
+   {
+      try
+      {
+         workspace.save(true, monitor);
+      } catch (final CoreException e)
+      {
+         logException(e);
+      }
+   }
+
+   private void logException(final Exception e)
+   {
+      logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+   }
+}
@@ -38,7 +38,8 @@ public class ICGT2016EvaluationHandler extends AbstractCommandHandler
 
       if (!projects.isEmpty())
       {
-         WorkspaceJob job = new ICGT2016EvaluationJob("Performing evaluation", projects, visualizer);
+         WorkspaceJob job = new ICGT2016EvaluationJob("Performing evaluation", projects, visualizer,
+               EvaluationConfiguration.fromSystemProperties());
          job.schedule();
       }
       return null;
@@ -1,25 +1,25 @@
 package org.moflon.paper.incrviz;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.log4j.Logger;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
-import org.eclipse.emf.ecore.resource.Resource;
-import org.eclipse.emf.ecore.xmi.PackageNotFoundException;
 import org.moflon.core.utilities.WorkspaceHelper;
-import org.moflon.core.utilities.eMoflonEMFUtil;
 
 final class ICGT2016EvaluationJob extends WorkspaceJob
 {
@@ -28,155 +28,372 @@ final class ICGT2016EvaluationJob extends WorkspaceJob
 
    private final Visualizer visualizer;
 
-   ICGT2016EvaluationJob(String name, List<IProject> projects, Visualizer visualizer)
+   private final EvaluationConfiguration configuration;
+
+   private volatile boolean regressionDetected;
+
+   private volatile boolean regressionCheckFailed;
+
+   ICGT2016EvaluationJob(String name, List<IProject> projects, Visualizer visualizer, EvaluationConfiguration configuration)
    {
       super(name);
       this.projects = projects;
       this.visualizer = visualizer;
+      this.configuration = configuration;
    }
 
    @Override
    public IStatus runInWorkspace(IProgressMonitor monitor)
    {
+      IStatus status = Status.OK_STATUS;
+      regressionDetected = false;
+      regressionCheckFailed = false;
+      final EvaluationStatistics liveStatistics = EvaluationStatistics.getInstance();
+      liveStatistics.reset();
+      liveStatistics.register();
+      startRun();
       try
       {
-         final int objectCounter = countCandidates(projects, monitor);
-         monitor.beginTask(String.format("Collect visualization data of %d EObjects", objectCounter), objectCounter);
-         for (final IProject project : projects)
+         final List<IFile> modelFiles = collectModelFiles(projects);
+         List<IFile> files = modelFiles;
+
+         final ResultCache resultCache = configuration.isIncremental()
+               ? ResultCache.load(configuration.getRootFolder(), visualizer.getResultsSignature()) : null;
+         visualizer.setResultCache(resultCache);
+         try
          {
-            if (project.isOpen())
+            if (resultCache != null)
             {
-               logger.info("Current project: " + project);
-               project.accept(new IResourceVisitor() {
-
-                  @Override
-                  public boolean visit(final IResource resource) throws CoreException
-                  {
-                     if (isUninterestingResource(resource))
-                     {
-                        // Do not descend into child resources
-                        return false;
-                     }
-
-                     final IFile file = resource.getAdapter(IFile.class);
-                     if (file != null && hasInterestingName(resource))
-                     {
-                        logger.info("Collecting statistidcs in " + file);
-
-                        try
-                        {
-                           final Resource content = readEResource(file);
-                           final TreeIterator<EObject> allContentsIterator = content.getAllContents();
-                           while (allContentsIterator.hasNext())
-                           {
-                              try
-                              {
-                                 final EObject next = allContentsIterator.next();
-                                 if (visualizer.isInterestingCandidate(next))
-                                 {
-                                    visualizer.visualize(next, file);
-                                    monitor.worked(1);
-                                 }
-
-                                 WorkspaceHelper.checkCanceledAndThrowInterruptedException(monitor);
-                              } catch (final InterruptedException e)
-                              {
-                                 throw e;
-                              } catch (final Exception e)
-                              {
-                                 logException(e);
-                              }
-                           }
-                        } catch (final InterruptedException e)
-                        {
-                           throw new RuntimeException("User canceled", e);
-                        } catch (final RuntimeException | PackageNotFoundException e)
-                        {
-                           logException(e);
-                        }
-                     }
-
-                     // continue with next resource
-                     return true;
-                  }
-
-                  // Filters out folders that are definitely not promising for efficiency purposes.
-                  private boolean isUninterestingResource(IResource resource)
-                  {
-                     return Arrays.asList("bin", "gen", "src").contains(resource.getName());
-                  }
-
-                  private boolean hasInterestingName(IResource resource)
-                  {
-                     return isEcoreFile(resource) || isProtocolFile(resource);
-                  }
-
-                  private boolean isProtocolFile(IResource resource)
-                  {
-                     String name = resource.getName();
-                     return name.matches(".*protocol.*.xmi") || name.endsWith("corr.xmi");
-                  }
-
-                  /**
-                   * Returns whether the given resource is a regular Ecore file.
-                   * 
-                   * File names ending with ".pre.ecore" are ignored because they are 'non-precompiled TGGs'.
-                   * 
-                   * @param resource
-                   * @return
-                   */
-                  private boolean isEcoreFile(IResource resource)
-                  {
-                     return resource.getName().endsWith(".ecore") && !resource.getName().endsWith(".pre.ecore");
-                  }
-
-                  private Resource readEResource(IFile file) throws PackageNotFoundException
-                  {
-                     final Resource resource = eMoflonEMFUtil.getResourceFromFileIntoDefaultResourceSet(file);
-                     return resource;
-                  }
-               });
+               files = carryForwardUnchangedFiles(files, resultCache);
+            }
+
+            if (configuration.getWorkerCount() > 1)
+            {
+               evaluateInParallel(files, monitor);
+            } else if (configuration.isPipeline())
+            {
+               evaluateInPipeline(files, monitor);
+            } else if (configuration.isBoundedMemory())
+            {
+               evaluateWithBoundedMemory(files, monitor);
+            } else
+            {
+               evaluateWithSharedResourceSet(files, monitor);
+            }
+         } finally
+         {
+            visualizer.setResultCache(null);
+            if (resultCache != null)
+            {
+               saveResultCache(resultCache);
             }
          }
 
          logger.info(String.format("Visualization of %d models done.", visualizer.getVisualizedItemCounter()));
 
+         if (configuration.isScalability())
+         {
+            new ScalabilityStudy(configuration).run(modelFiles, monitor);
+         }
+
       } catch (final CoreException e)
       {
          logException(e);
+         status = e.getStatus();
+      } catch (final UncheckedIOException e)
+      {
+         logException(e);
+         status = new Status(IStatus.ERROR, VisualizationEvaluationActivator.getDefault().getBundle().getSymbolicName(),
+               "Writing the results failed", e);
       } catch (final RuntimeException e)
       {
          if (e.getCause() instanceof InterruptedException)
          {
             logger.info("User canceled visualization");
+            status = Status.CANCEL_STATUS;
          } else
          {
             throw e;
          }
       } finally
       {
+         closeResults();
          monitor.done();
       }
-      return Status.OK_STATUS;
+
+      if (status.isOK() && configuration.getBaseline() != null && !regressionCheckFailed)
+      {
+         checkForRegressions();
+      }
+      return status;
+   }
+
+   /**
+    * Returns whether the comparison with the baseline run has revealed a regression
+    */
+   boolean isRegressionDetected()
+   {
+      return regressionDetected;
+   }
+
+   /**
+    * Returns whether the comparison with the baseline run could not be completed
+    */
+   boolean isRegressionCheckFailed()
+   {
+      return regressionCheckFailed;
+   }
+
+   /**
+    * Loads all files into the default resource set, indexes all candidates and evaluates them afterwards.
+    */
+   private void evaluateWithSharedResourceSet(final List<IFile> files, final IProgressMonitor monitor)
+   {
+      final CandidateIndex candidateIndex = discoverCandidates(files, monitor);
+      logger.info(String.format("Found %d candidates in %d files", candidateIndex.size(), candidateIndex.getFileCount()));
+
+      monitor.beginTask(String.format("Collect visualization data of %d EObjects", candidateIndex.size()), candidateIndex.size());
+      IFile currentFile = null;
+      for (final Candidate candidate : candidateIndex.getCandidates())
+      {
+         if (!candidate.getFile().equals(currentFile))
+         {
+            currentFile = candidate.getFile();
+            logger.info("Collecting statistics in " + currentFile);
+         }
+
+         evaluateCandidate(candidateIndex, candidate, monitor);
+         monitor.worked(1);
+      }
+   }
+
+   /**
+    * Loads, indexes and evaluates one file after the other. Each file is loaded into its own resource set, which is
+    * unloaded after all candidates of the file have been evaluated. Therefore, the memory consumption is bounded by the
+    * largest file instead of the whole workspace.
+    */
+   private void evaluateWithBoundedMemory(final List<IFile> files, final IProgressMonitor monitor)
+   {
+      final HeapUsageProbe heapUsageProbe = new HeapUsageProbe();
+
+      final EvaluationWorker worker = new EvaluationWorker(visualizer);
+
+      monitor.beginTask(String.format("Collect visualization data of %d files", files.size()), files.size());
+      for (final IFile file : files)
+      {
+         logger.info("Collecting statistics in " + file);
+         heapUsageProbe.reset();
+
+         int candidateCount = 0;
+         try
+         {
+            final CandidateIndex candidateIndex = worker.indexFile(file, monitor);
+            candidateCount = candidateIndex.size();
+
+            monitor.subTask(String.format("%s (%d candidates)", file.getFullPath(), candidateCount));
+            for (final Candidate candidate : candidateIndex.getCandidates())
+            {
+               evaluateCandidate(candidateIndex, candidate, monitor);
+            }
+         } catch (final RuntimeException e)
+         {
+            if (e.getCause() instanceof InterruptedException || e instanceof UncheckedIOException)
+               throw e;
+            logException(e);
+         } finally
+         {
+            final long peakHeapUsage = heapUsageProbe.getPeakHeapUsage();
+            worker.unload();
+            reportHeapUsage(file, candidateCount, peakHeapUsage, heapUsageProbe.getCurrentHeapUsage());
+         }
+         monitor.worked(1);
+      }
+   }
+
+   /**
+    * Evaluates the candidates using several workers, each of them with its own diagram text providers and resource set
+    */
+   private void evaluateInParallel(final List<IFile> files, final IProgressMonitor monitor)
+   {
+      try
+      {
+         new ParallelEvaluation(visualizer, configuration.getWorkerCount()).run(files, monitor);
+      } catch (final InterruptedException e)
+      {
+         throw new RuntimeException("User canceled", e);
+      }
+   }
+
+   /**
+    * Loads the files ahead on loader threads while a dedicated thread measures the candidates (see
+    * {@link EvaluationPipeline})
+    */
+   private void evaluateInPipeline(final List<IFile> files, final IProgressMonitor monitor)
+   {
+      try
+      {
+         new EvaluationPipeline(visualizer, configuration.getLoaderThreadCount(), configuration.getLoadQueueCapacity()).run(files, monitor);
+      } catch (final InterruptedException e)
+      {
+         throw new RuntimeException("User canceled", e);
+      }
+   }
+
+   private void evaluateCandidate(final CandidateIndex candidateIndex, final Candidate candidate, final IProgressMonitor monitor)
+   {
+      try
+      {
+         final EObject element = candidateIndex.resolve(candidate);
+         visualizer.visualize(element, candidate);
+
+         WorkspaceHelper.checkCanceledAndThrowInterruptedException(monitor);
+      } catch (final InterruptedException e)
+      {
+         throw new RuntimeException("User canceled", e);
+      } catch (final UncheckedIOException e)
+      {
+         // The results cannot be written any more
+         throw e;
+      } catch (final Exception e)
+      {
+         logException(e);
+      }
+   }
+
+   private void reportHeapUsage(final IFile file, final int candidateCount, final long peakHeapUsage, final long heapUsageAfterUnload)
+   {
+      logger.info(String.format("Heap usage for %s (%d candidates) - peak: %d MB - after unload: %d MB", file, candidateCount,
+            peakHeapUsage / (1024 * 1024), heapUsageAfterUnload / (1024 * 1024)));
+
+      try
+      {
+         final File reportFile = new File(configuration.getRootFolder(), "incrviz_memory.csv");
+         if (!reportFile.exists())
+         {
+            FileUtils.writeLines(reportFile, Arrays.asList("file;candidateCount;peakHeapInBytes;heapAfterUnloadInBytes"), true);
+         }
+         final String row = String.join(";", file.getFullPath().toString().replaceAll(";", "_"), Integer.toString(candidateCount),
+               Long.toString(peakHeapUsage), Long.toString(heapUsageAfterUnload));
+         FileUtils.writeLines(reportFile, Arrays.asList(row), true);
+      } catch (final IOException e)
+      {
+         logException(e);
+      }
    }
 
-   private int countCandidates(final List<IProject> projects, IProgressMonitor monitor) throws CoreException
+   private List<IFile> collectModelFiles(final List<IProject> projects) throws CoreException
    {
-      int objectCounter = 0;
+      final ModelFileCollector collector = new ModelFileCollector();
       for (final IProject project : projects)
       {
          if (project.isOpen())
          {
-            final EObjectCounter visitor = new EObjectCounter(monitor);
-            project.accept(visitor);
-            objectCounter += visitor.visitedObjectCount;
+            logger.info("Current project: " + project);
+            project.accept(collector, IResource.NONE);
+         }
+      }
+      return collector.getFiles();
+   }
+
+   /**
+    * Loads all given files once and collects their candidates
+    */
+   private CandidateIndex discoverCandidates(final List<IFile> files, final IProgressMonitor monitor)
+   {
+      final CandidateIndex candidateIndex = new CandidateIndex();
+      final CandidateDiscovery discovery = new CandidateDiscovery(candidateIndex, visualizer, monitor);
+      for (final IFile file : files)
+      {
+         discovery.indexFile(file);
+      }
+      return candidateIndex;
+   }
+
+   /**
+    * Writes the results of all files that have not changed since the previous run and returns the remaining files
+    */
+   private List<IFile> carryForwardUnchangedFiles(final List<IFile> files, final ResultCache resultCache)
+   {
+      final List<IFile> changedFiles = new ArrayList<>();
+      int carriedRowCount = 0;
+      for (final IFile file : files)
+      {
+         if (resultCache.isUnchanged(file))
+         {
+            for (final String row : resultCache.carryForward(file))
+            {
+               visualizer.appendCachedResult(row);
+               ++carriedRowCount;
+            }
+         } else
+         {
+            changedFiles.add(file);
          }
       }
-      return objectCounter;
+      logger.info(String.format("Taking over %d results of %d unchanged files. Evaluating %d changed files.", carriedRowCount,
+            files.size() - changedFiles.size(), changedFiles.size()));
+      return changedFiles;
+   }
+
+   /**
+    * Empties the results file of the run. The comparison with the baseline is skipped if this fails because the file would
+    * still contain the rows of the previous run.
+    */
+   private void startRun()
+   {
+      try
+      {
+         visualizer.startRun();
+      } catch (final IOException e)
+      {
+         logException(e);
+         regressionCheckFailed = true;
+      }
+   }
+
+   /**
+    * Compares the results file of this run with the results file of the baseline run. The results file of this run
+    * contains only the rows measured by this run, i.e., neither the rows of previous runs nor the carried forward rows.
+    */
+   private void checkForRegressions()
+   {
+      final RegressionGate regressionGate = new RegressionGate(configuration.getRegressionThreshold(), configuration.getSignificanceLevel());
+      try
+      {
+         regressionDetected = regressionGate.check(configuration.getBaseline(), visualizer.getRunResultsFile(),
+               new File(configuration.getRootFolder(), RegressionGate.REPORT_FILE_NAME));
+      } catch (final IOException | RuntimeException e)
+      {
+         logException(e);
+         regressionCheckFailed = true;
+      }
    }
-   
+
+   private void closeResults()
+   {
+      try
+      {
+         visualizer.closeResults();
+      } catch (final IOException e)
+      {
+         logException(e);
+      }
+   }
+
+   private void saveResultCache(final ResultCache resultCache)
+   {
+      try
+      {
+         resultCache.save();
+      } catch (final IOException e)
+      {
+         logException(e);
+      }
+   }
+
    private void logException(Exception e)
    {
       logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+      EvaluationStatistics.getInstance().recordError();
    }
-}
\ No newline at end of file
+}
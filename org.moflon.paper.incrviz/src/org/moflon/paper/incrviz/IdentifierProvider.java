@@ -1,5 +1,9 @@
 package org.moflon.paper.incrviz;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EOperation;
 import org.moflon.core.utilities.MoflonUtil;
@@ -11,72 +15,115 @@ import SDMLanguage.activities.StoryNode;
 import SDMLanguage.patterns.StoryPattern;
 
 /**
- * Utility class for calculating IDs of EMF objects
+ * Calculates normalized IDs of EMF objects.
+ * 
+ * In a normalized ID, each run of whitespace and each CSV separator is replaced by '_', and single quotes are removed.
+ * The ID of an object is built from the IDs of its owning operation or container, which are cached because many
+ * candidates share them. The cache references model elements and must be cleared (see {@link #clear()}) when their
+ * resources are unloaded.
  */
 public class IdentifierProvider
 {
+   private static final char SEGMENT_SEPARATOR = '/';
+
+   private static final char CSV_SEP = ResultRow.CSV_SEP.charAt(0);
+
+   private final Map<EObject, String> identifiersOfContainers = new HashMap<>();
+
+   private final Map<EOperation, String> identifiersOfOwningOperations = new HashMap<>();
+
+   private final Map<EClass, String> qualifiedNamesOfClasses = new HashMap<>();
+
+   /**
+    * Returns the normalized ID of the given element
+    */
+   public String calculateNormalizedIdentifier(final EObject element)
+   {
+      final StringBuilder identifier = new StringBuilder();
+      appendIdentifier(identifier, element);
+      return identifier.toString();
+   }
+
+   /**
+    * Forgets all cached IDs
+    */
+   public void clear()
+   {
+      identifiersOfContainers.clear();
+      identifiersOfOwningOperations.clear();
+      qualifiedNamesOfClasses.clear();
+   }
 
-   static String calculateIdentifier(final EObject element)
+   private void appendIdentifier(final StringBuilder identifier, final EObject element)
    {
       if (element == null)
-         return "null";
+         identifier.append("null");
       else if (element instanceof MoflonEOperation)
-         return calculateIdentifierOfMoflonEOperation((MoflonEOperation) element);
+         appendIdentifierOfMoflonEOperation(identifier, (MoflonEOperation) element);
       else if (element instanceof Activity)
-         return calculateIdentifierOfActivity((Activity) element);
+         appendIdentifierOfActivity(identifier, (Activity) element);
       else if (element instanceof TGGRule)
-         return calculateIdentifierOfTggRule((TGGRule) element);
+         appendIdentifierOfTggRule(identifier, (TGGRule) element);
       else if (element instanceof StoryPattern)
-         return calculateIdentifierOfStoryPattern((StoryPattern) element);
+         appendIdentifierOfStoryPattern(identifier, (StoryPattern) element);
       else
-         return element.toString();
+         appendNormalized(identifier, element.toString());
    }
 
-   private static String calculateIdentifierOfStoryPattern(final StoryPattern storyPattern)
+   private void appendIdentifierOfStoryPattern(final StringBuilder identifier, final StoryPattern storyPattern)
    {
       StoryNode storyNode = storyPattern.getStoryNode();
       if (storyNode == null)
       {
-         return calculateIdentifier(storyPattern.eContainer()) + "/" + storyPattern.getComment();
+         appendIdentifierOfContainer(identifier, storyPattern.eContainer());
+         appendSegment(identifier, storyPattern.getComment());
+         return;
       }
       Activity owningActivity = storyNode.getOwningActivity();
-      if (owningActivity == null)
-      {
-         return calculateIdentifier(storyNode.eContainer()) + "/" + storyNode.getName();
-      }
-   
-      EOperation owningOperation = owningActivity.getOwningOperation();
+      EOperation owningOperation = owningActivity == null ? null : owningActivity.getOwningOperation();
       if (owningOperation == null)
       {
-         return calculateIdentifier(storyNode.eContainer()) + "/" + storyNode.getName();
+         appendIdentifierOfContainer(identifier, storyNode.eContainer());
+         appendSegment(identifier, storyNode.getName());
+         return;
       }
-      String containingClassName = owningOperation.getEContainingClass().getName();
-      return containingClassName + "/" + owningOperation.getName() + "/" + storyNode.getName();
+      appendIdentifierOfOwningOperation(identifier, owningOperation);
+      appendSegment(identifier, storyNode.getName());
    }
 
-   static String calculateIdentifierOfMoflonEOperation(MoflonEOperation eMoflonOperation)
+   private void appendIdentifierOfMoflonEOperation(final StringBuilder identifier, final MoflonEOperation eMoflonOperation)
    {
-      return MoflonUtil.getFQN(eMoflonOperation.getEContainingClass()) + "/" + eMoflonOperation.getName();
+      final EClass containingClass = eMoflonOperation.getEContainingClass();
+      String qualifiedName = qualifiedNamesOfClasses.get(containingClass);
+      if (qualifiedName == null)
+      {
+         qualifiedName = normalize(MoflonUtil.getFQN(containingClass));
+         qualifiedNamesOfClasses.put(containingClass, qualifiedName);
+      }
+      identifier.append(qualifiedName);
+      appendSegment(identifier, eMoflonOperation.getName());
    }
 
-   static String calculateIdentifierOfTggRule(final TGGRule tggRule)
+   private void appendIdentifierOfTggRule(final StringBuilder identifier, final TGGRule tggRule)
    {
       if (tggRule.getTripleGraphGrammar() == null)
       {
          StoryNode storyNode = tggRule.getStoryNode();
          if (storyNode != null)
          {
-            return storyNode.getName() + "/" + tggRule.getName();
+            appendNormalized(identifier, storyNode.getName());
+            appendSegment(identifier, tggRule.getName());
          } else
          {
-            return tggRule.getName();
+            appendNormalized(identifier, tggRule.getName());
          }
+         return;
       }
-      final String tggName = tggRule.getTripleGraphGrammar().getName();
-      return tggName + "/" + tggRule.getName();
+      appendNormalized(identifier, tggRule.getTripleGraphGrammar().getName());
+      appendSegment(identifier, tggRule.getName());
    }
 
-   private static String calculateIdentifierOfActivity(final Activity activiy)
+   private void appendIdentifierOfActivity(final StringBuilder identifier, final Activity activiy)
    {
       EOperation owningOperation = activiy.getOwningOperation();
       if (owningOperation == null)
@@ -84,15 +131,105 @@ public class IdentifierProvider
          EObject container = activiy.eContainer();
          if (container instanceof MoflonEOperation)
          {
-            final MoflonEOperation operation = (MoflonEOperation) container;
-            return calculateIdentifierOfMoflonEOperation(operation);
+            appendIdentifierOfMoflonEOperation(identifier, (MoflonEOperation) container);
+         } else
+         {
+            appendNormalized(identifier, String.valueOf(container));
+         }
+         return;
+      }
+      appendIdentifierOfOwningOperation(identifier, owningOperation);
+   }
+
+   /**
+    * Appends the (cached) ID of the given container
+    */
+   private void appendIdentifierOfContainer(final StringBuilder identifier, final EObject container)
+   {
+      if (container == null)
+      {
+         identifier.append("null");
+         return;
+      }
+
+      String identifierOfContainer = identifiersOfContainers.get(container);
+      if (identifierOfContainer == null)
+      {
+         final StringBuilder builder = new StringBuilder();
+         appendIdentifier(builder, container);
+         identifierOfContainer = builder.toString();
+         identifiersOfContainers.put(container, identifierOfContainer);
+      }
+      identifier.append(identifierOfContainer);
+   }
+
+   /**
+    * Appends the (cached) ID of the given operation, which consists of the simple name of its class and its name
+    */
+   private void appendIdentifierOfOwningOperation(final StringBuilder identifier, final EOperation owningOperation)
+   {
+      String identifierOfOperation = identifiersOfOwningOperations.get(owningOperation);
+      if (identifierOfOperation == null)
+      {
+         final StringBuilder builder = new StringBuilder();
+         appendNormalized(builder, owningOperation.getEContainingClass().getName());
+         appendSegment(builder, owningOperation.getName());
+         identifierOfOperation = builder.toString();
+         identifiersOfOwningOperations.put(owningOperation, identifierOfOperation);
+      }
+      identifier.append(identifierOfOperation);
+   }
+
+   private static void appendSegment(final StringBuilder identifier, final String segment)
+   {
+      identifier.append(SEGMENT_SEPARATOR);
+      appendNormalized(identifier, segment);
+   }
+
+   private static String normalize(final String text)
+   {
+      final StringBuilder builder = new StringBuilder(text.length());
+      appendNormalized(builder, text);
+      return builder.toString();
+   }
+
+   /**
+    * Appends the given text, replacing each run of whitespace and each CSV separator by '_' and dropping single quotes.
+    * 
+    * Segments are always separated by '/', so normalizing them one by one yields the same result as normalizing the
+    * whole ID.
+    */
+   private static void appendNormalized(final StringBuilder identifier, final String text)
+   {
+      if (text == null)
+      {
+         identifier.append("null");
+         return;
+      }
+
+      boolean isInWhitespace = false;
+      for (int i = 0; i < text.length(); ++i)
+      {
+         final char c = text.charAt(i);
+         if (isWhitespace(c))
+         {
+            if (!isInWhitespace)
+               identifier.append('_');
+            isInWhitespace = true;
          } else
          {
-            return container.toString();
+            isInWhitespace = false;
+            if (c == CSV_SEP)
+               identifier.append('_');
+            else if (c != '\'')
+               identifier.append(c);
          }
       }
-      String containingClassName = owningOperation.getEContainingClass().getName();
-      return containingClassName + "/" + owningOperation.getName();
    }
 
+   // Same characters as \s in regular expressions
+   private static boolean isWhitespace(final char c)
+   {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+   }
 }
@@ -0,0 +1,142 @@
+package org.moflon.paper.incrviz;
+
+/**
+ * Histogram of latencies (in nanoseconds) with logarithmic buckets that are subdivided linearly, similar to an
+ * HdrHistogram.
+ *
+ * Values below {@link #SUB_BUCKET_COUNT} have a bucket of their own. Each larger power-of-two range is split into
+ * {@link #SUB_BUCKET_COUNT} buckets of equal width, so that the relative error of a reported percentile is at most
+ * 1/{@link #SUB_BUCKET_COUNT}. Values of {@link #MAXIMUM_TRACKABLE_VALUE} nanoseconds (about 4.9 hours) and above are
+ * counted in the last bucket. The histogram only stores primitive counters, so its size does not depend on the number
+ * of recorded values.
+ *
+ * All methods are thread-safe.
+ */
+final class LatencyHistogram
+{
+   private static final int SUB_BUCKET_BITS = 6;
+
+   static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+   static final long MAXIMUM_TRACKABLE_VALUE = 1L << 44;
+
+   private static final int BUCKET_COUNT = indexOf(MAXIMUM_TRACKABLE_VALUE - 1) + 1;
+
+   private final long[] counts = new long[BUCKET_COUNT];
+
+   private long totalCount;
+
+   private double sum;
+
+   private long maximum;
+
+   /**
+    * Records the given latency. Negative values are counted as 0.
+    */
+   public synchronized void record(final long valueInNanos)
+   {
+      final long value = Math.max(0, valueInNanos);
+      ++counts[indexOf(Math.min(value, MAXIMUM_TRACKABLE_VALUE - 1))];
+      ++totalCount;
+      sum += value;
+      maximum = Math.max(maximum, value);
+   }
+
+   public synchronized void recordAll(final double[] valuesInNanos)
+   {
+      for (final double value : valuesInNanos)
+      {
+         record((long) value);
+      }
+   }
+
+   /**
+    * Adds all values of the given histogram to this histogram
+    */
+   public void add(final LatencyHistogram other)
+   {
+      final long[] otherCounts;
+      final long otherTotalCount;
+      final double otherSum;
+      final long otherMaximum;
+      synchronized (other)
+      {
+         otherCounts = other.counts.clone();
+         otherTotalCount = other.totalCount;
+         otherSum = other.sum;
+         otherMaximum = other.maximum;
+      }
+
+      synchronized (this)
+      {
+         for (int i = 0; i < BUCKET_COUNT; ++i)
+         {
+            counts[i] += otherCounts[i];
+         }
+         totalCount += otherTotalCount;
+         sum += otherSum;
+         maximum = Math.max(maximum, otherMaximum);
+      }
+   }
+
+   public synchronized long getTotalCount()
+   {
+      return totalCount;
+   }
+
+   public synchronized long getMaximum()
+   {
+      return maximum;
+   }
+
+   /**
+    * Returns the mean of all recorded values or NaN if the histogram is empty
+    */
+   public synchronized double getMean()
+   {
+      return totalCount > 0 ? sum / totalCount : Double.NaN;
+   }
+
+   /**
+    * Returns the smallest value such that the given percentage of the recorded values is less than or equal to it, up to
+    * the resolution of the buckets, or NaN if the histogram is empty
+    */
+   public synchronized double getValueAtPercentile(final double percentile)
+   {
+      if (totalCount == 0)
+         return Double.NaN;
+
+      final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+      long cumulativeCount = 0;
+      for (int i = 0; i < BUCKET_COUNT; ++i)
+      {
+         cumulativeCount += counts[i];
+         if (cumulativeCount >= rank)
+            return Math.min(getUpperBound(i), maximum);
+      }
+      return maximum;
+   }
+
+   private static int indexOf(final long value)
+   {
+      if (value < SUB_BUCKET_COUNT)
+         return (int) value;
+
+      final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+      final int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+      return SUB_BUCKET_COUNT * (shift + 1) + subBucket;
+   }
+
+   /**
+    * Returns the largest value that is counted in the bucket with the given index
+    */
+   private static long getUpperBound(final int index)
+   {
+      if (index < SUB_BUCKET_COUNT)
+         return index;
+
+      final int shift = index / SUB_BUCKET_COUNT - 1;
+      final long subBucket = index % SUB_BUCKET_COUNT;
+      return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+   }
+}
@@ -0,0 +1,110 @@
+package org.moflon.paper.incrviz;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Accumulates the wall-clock times of all measured runs in {@link LatencyHistogram}s per type of model, mode (batch,
+ * incremental or batch after a change) and size bucket, and writes their percentiles as a compact summary of the whole
+ * evaluation.
+ *
+ * The size buckets are powers of two of the object size (node count + edge count), e.g., 64-127. Candidates whose rows
+ * are taken over from a previous run (see {@link ResultCache}) are not measured and, therefore, not part of the summary.
+ * All methods are thread-safe.
+ */
+final class LatencySummary
+{
+   static final String ALL_SIZES = "all";
+
+   private static final String KEY_SEP = "/";
+
+   private static final int COLUMN_COUNT = getSchema().size();
+
+   private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+   /**
+    * Returns the layout of the summary, which has one row per type, mode and size bucket and one row per type and mode
+    * over all sizes
+    */
+   static ResultsSchema getSchema()
+   {
+      final ResultsSchema schema = new ResultsSchema();
+      schema.add("type", ColumnType.TEXT);
+      schema.add("mode", ColumnType.TEXT);
+      schema.add("objectSize", ColumnType.TEXT);
+      schema.add("count", ColumnType.INTEGER);
+      schema.add("wallMillis_mean", ColumnType.MILLIS);
+      schema.add("wallMillis_p50", ColumnType.MILLIS);
+      schema.add("wallMillis_p90", ColumnType.MILLIS);
+      schema.add("wallMillis_p99", ColumnType.MILLIS);
+      schema.add("wallMillis_max", ColumnType.MILLIS);
+      return schema;
+   }
+
+   /**
+    * Records the given wall-clock times (in nanoseconds) of runs of the given type and mode on a model of the given size
+    */
+   public void record(final String type, final String mode, final int objectSize, final double[] wallTimesInNanos)
+   {
+      final String key = String.join(KEY_SEP, type, mode, String.format("%010d", getLowerBoundOfSizeBucket(objectSize)));
+      histograms.computeIfAbsent(key, k -> new LatencyHistogram()).recordAll(wallTimesInNanos);
+   }
+
+   /**
+    * Writes the summary to the given file, replacing its previous content, and discards all recorded values afterwards
+    */
+   public void writeAndClear(final File targetFile) throws IOException
+   {
+      final List<String> lines = new ArrayList<>();
+      lines.add(String.join(ResultRow.CSV_SEP, getSchema().getNames()));
+
+      final Map<String, LatencyHistogram> histogramsPerTypeAndMode = new TreeMap<>();
+      for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet())
+      {
+         final String[] keyParts = entry.getKey().split(KEY_SEP);
+         final long lowerBound = Long.parseLong(keyParts[2]);
+         final String sizeBucket = lowerBound == 0 ? "0" : String.format("%d-%d", lowerBound, 2 * lowerBound - 1);
+         lines.add(toRow(keyParts[0], keyParts[1], sizeBucket, entry.getValue()).toCsv());
+         histogramsPerTypeAndMode.computeIfAbsent(keyParts[0] + KEY_SEP + keyParts[1], k -> new LatencyHistogram()).add(entry.getValue());
+      }
+      for (final Map.Entry<String, LatencyHistogram> entry : histogramsPerTypeAndMode.entrySet())
+      {
+         final String[] keyParts = entry.getKey().split(KEY_SEP);
+         lines.add(toRow(keyParts[0], keyParts[1], ALL_SIZES, entry.getValue()).toCsv());
+      }
+
+      targetFile.getParentFile().mkdirs();
+      FileUtils.writeLines(targetFile, StandardCharsets.UTF_8.name(), lines, false);
+      histograms.clear();
+   }
+
+   public boolean isEmpty()
+   {
+      return histograms.isEmpty();
+   }
+
+   private static ResultRow toRow(final String type, final String mode, final String sizeBucket, final LatencyHistogram histogram)
+   {
+      final ResultRow row = new ResultRow(COLUMN_COUNT);
+      row.addText(type).addText(mode).addText(sizeBucket).addInteger(histogram.getTotalCount());
+      row.addMillis(histogram.getMean() / 1e6);
+      row.addMillis(histogram.getValueAtPercentile(50) / 1e6);
+      row.addMillis(histogram.getValueAtPercentile(90) / 1e6);
+      row.addMillis(histogram.getValueAtPercentile(99) / 1e6);
+      row.addMillis(histogram.getMaximum() / 1e6);
+      return row;
+   }
+
+   private static long getLowerBoundOfSizeBucket(final int objectSize)
+   {
+      return objectSize > 0 ? Long.highestOneBit(objectSize) : 0;
+   }
+}
@@ -0,0 +1,98 @@
+package org.moflon.paper.incrviz;
+
+/**
+ * Result of a single, measured invocation of a diagram text provider
+ * 
+ * @see TransformationTimer
+ */
+final class Measurement
+{
+   /**
+    * Value that is used for metrics that are not supported by the running JVM
+    */
+   static final long NOT_AVAILABLE = -1;
+
+   private final String dot;
+
+   private final double providerDurationInMillis;
+
+   private final long wallTimeInNanos;
+
+   private final long cpuTimeInNanos;
+
+   private final long allocatedBytes;
+
+   private final long gcCount;
+
+   private final long gcTimeInMillis;
+
+   Measurement(final String dot, final double providerDurationInMillis, final long wallTimeInNanos, final long cpuTimeInNanos, final long allocatedBytes,
+         final long gcCount, final long gcTimeInMillis)
+   {
+      this.dot = dot;
+      this.providerDurationInMillis = providerDurationInMillis;
+      this.wallTimeInNanos = wallTimeInNanos;
+      this.cpuTimeInNanos = cpuTimeInNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.gcCount = gcCount;
+      this.gcTimeInMillis = gcTimeInMillis;
+   }
+
+   /**
+    * Returns the DOT text that has been produced
+    */
+   public String getDot()
+   {
+      return dot;
+   }
+
+   /**
+    * Returns the duration as reported by the diagram text provider itself
+    */
+   public double getProviderDurationInMillis()
+   {
+      return providerDurationInMillis;
+   }
+
+   /**
+    * Returns the elapsed time as measured by the monotonic clock of the JVM
+    */
+   public long getWallTimeInNanos()
+   {
+      return wallTimeInNanos;
+   }
+
+   /**
+    * Returns the CPU time of the measuring thread or {@link #NOT_AVAILABLE}
+    */
+   public long getCpuTimeInNanos()
+   {
+      return cpuTimeInNanos;
+   }
+
+   /**
+    * Returns the number of bytes allocated by the measuring thread or {@link #NOT_AVAILABLE}
+    */
+   public long getAllocatedBytes()
+   {
+      return allocatedBytes;
+   }
+
+   /**
+    * Returns the number of garbage collections that overlapped the invocation or {@link #NOT_AVAILABLE}.
+    * 
+    * Garbage collections are counted JVM-wide, i.e., they may have been caused by other threads.
+    */
+   public long getGcCount()
+   {
+      return gcCount;
+   }
+
+   /**
+    * Returns the accumulated time of the garbage collections that overlapped the invocation or {@link #NOT_AVAILABLE}
+    */
+   public long getGcTimeInMillis()
+   {
+      return gcTimeInMillis;
+   }
+}
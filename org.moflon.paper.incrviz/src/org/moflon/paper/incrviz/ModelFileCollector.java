@@ -0,0 +1,82 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * This visitor collects all interesting model files without loading them.
+ * 
+ * The visitor works on {@link IResourceProxy}s (see {@link IResource#accept(IResourceProxyVisitor, int)}), so that only
+ * the handles of the collected files are created.
+ */
+final class ModelFileCollector implements IResourceProxyVisitor
+{
+   private static final List<String> UNINTERESTING_FOLDER_NAMES = Arrays.asList("bin", "gen", "src");
+
+   private final List<IFile> files = new ArrayList<>();
+
+   @Override
+   public boolean visit(final IResourceProxy proxy) throws CoreException
+   {
+      if (isUninterestingResource(proxy))
+      {
+         // Do not descend into child resources
+         return false;
+      }
+
+      if (proxy.getType() == IResource.FILE && hasInterestingName(proxy.getName()))
+      {
+         files.add((IFile) proxy.requestResource());
+      }
+
+      // continue with next resource
+      return true;
+   }
+
+   public List<IFile> getFiles()
+   {
+      return files;
+   }
+
+   // Filters out folders that are definitely not promising for efficiency purposes.
+   private static boolean isUninterestingResource(final IResourceProxy proxy)
+   {
+      return UNINTERESTING_FOLDER_NAMES.contains(proxy.getName());
+   }
+
+   private static boolean hasInterestingName(final String name)
+   {
+      return isEcoreFile(name) || isProtocolFile(name);
+   }
+
+   /**
+    * Returns whether the given name contains "protocol" followed by at least one character and "xmi" at its end (like the
+    * regular expression ".*protocol.*.xmi") or ends with "corr.xmi"
+    */
+   private static boolean isProtocolFile(final String name)
+   {
+      final int protocolIndex = name.indexOf("protocol");
+      final boolean isProtocol = protocolIndex >= 0 && name.endsWith("xmi") && protocolIndex + "protocol".length() < name.length() - "xmi".length();
+      return isProtocol || name.endsWith("corr.xmi");
+   }
+
+   /**
+    * Returns whether the given name is the name of a regular Ecore file.
+    * 
+    * File names ending with ".pre.ecore" are ignored because they are 'non-precompiled TGGs'.
+    * 
+    * @param name
+    * @return
+    */
+   private static boolean isEcoreFile(final String name)
+   {
+      return name.endsWith(".ecore") && !name.endsWith(".pre.ecore");
+   }
+}
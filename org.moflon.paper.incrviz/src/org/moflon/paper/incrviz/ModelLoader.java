@@ -0,0 +1,267 @@
+package org.moflon.paper.incrviz;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.common.util.WrappedException;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMLParserPoolImpl;
+import org.moflon.paper.incrviz.EvaluationConfiguration.LoadProfile;
+
+/**
+ * Loads model files into resource sets using a {@link LoadProfile} and records the load time and throughput of each
+ * file.
+ * 
+ * The fast profile is tuned for large XMI files such as protocols and correspondence models:
+ * <ul>
+ * <li>The SAX parsers are taken from a pool instead of being created for each file.</li>
+ * <li>IDREFs are resolved after the whole document has been parsed.</li>
+ * <li>Objects with intrinsic IDs are registered in a map of the resource, so that resolving an ID does not traverse the
+ * resource.</li>
+ * <li>The features of the XML element names are looked up in a table that is shared by all loads.</li>
+ * <li>The input is buffered, and notifications are disabled while loading.</li>
+ * </ul>
+ * If a {@link BinaryResourceCache} is given, XML resources are loaded from their cache entry if there is one and are
+ * stored in the cache otherwise. The source file is only hashed if it has changed since it was hashed last, and the
+ * load time does not include computing the key. Resources that cannot be cached are loaded from the file without being
+ * converted again.
+ * 
+ * All methods are thread-safe.
+ */
+final class ModelLoader
+{
+   static final String REPORT_FILE_NAME = "incrviz_load.csv";
+
+   private static final int BUFFER_SIZE_IN_BYTES = 1 << 16;
+
+   private static final String SOURCE_FILE = "file";
+
+   private static final String SOURCE_CACHE = "cache";
+
+   private final Logger logger = Logger.getLogger(ModelLoader.class);
+
+   private final LoadProfile loadProfile;
+
+   private final Map<Object, Object> fastLoadOptions;
+
+   private final ResultsFile reportFile;
+
+   private final BinaryResourceCache binaryResourceCache;
+
+   /**
+    * @param binaryResourceCache
+    *           the cache of loaded models (may be null)
+    */
+   ModelLoader(final LoadProfile loadProfile, final ResultsFile reportFile, final BinaryResourceCache binaryResourceCache)
+   {
+      this.loadProfile = loadProfile;
+      this.reportFile = reportFile;
+      this.binaryResourceCache = binaryResourceCache;
+      this.fastLoadOptions = createFastLoadOptions();
+   }
+
+   /**
+    * Returns the layout of the report, which has one row per loaded file
+    */
+   static ResultsSchema getSchema()
+   {
+      final ResultsSchema schema = new ResultsSchema();
+      schema.add("file", ColumnType.TEXT);
+      schema.add("profile", ColumnType.TEXT);
+      schema.add("source", ColumnType.TEXT);
+      schema.add("bytes", ColumnType.INTEGER);
+      schema.add("objectCount", ColumnType.INTEGER);
+      schema.add("loadMillis", ColumnType.MILLIS);
+      schema.add("megabytesPerSecond", ColumnType.RATIO);
+      schema.add("objectsPerSecond", ColumnType.RATIO);
+      return schema;
+   }
+
+   /**
+    * Returns the resource of the given file in the given resource set and loads it if necessary.
+    * 
+    * Like {@link ResourceSet#getResource(URI, boolean)}, this method throws a {@link WrappedException} if the file cannot
+    * be loaded. The resource remains in the resource set in this case.
+    */
+   public Resource load(final IFile file, final ResourceSet resourceSet)
+   {
+      final URI uri = URI.createPlatformResourceURI(file.getFullPath().toString(), true);
+      final Resource existingResource = resourceSet.getResource(uri, false);
+      if (existingResource != null && existingResource.isLoaded())
+         return existingResource;
+
+      final Resource resource = existingResource != null ? existingResource : resourceSet.createResource(uri);
+      if (resource == null)
+         throw new IllegalArgumentException("No resource factory for " + uri);
+
+      final Map<Object, Object> options = new HashMap<>(resourceSet.getLoadOptions());
+      if (loadProfile == LoadProfile.FAST)
+      {
+         options.putAll(fastLoadOptions);
+      }
+
+      try
+      {
+         final String cacheKey = binaryResourceCache != null && resource instanceof XMLResource ? getCacheKey(file, resourceSet, uri, options)
+               : null;
+         final long loadStart = System.nanoTime();
+         final File cacheEntry = cacheKey != null ? binaryResourceCache.lookUp(cacheKey) : null;
+         if (cacheEntry != null && loadFromCache(resource, cacheEntry, cacheKey, options))
+         {
+            final long loadTime = System.nanoTime() - loadStart;
+            record(file, SOURCE_CACHE, cacheEntry.length(), countObjects(resource), loadTime);
+            return resource;
+         }
+
+         final long byteCount = loadFromFile(resource, resourceSet, uri, options);
+         // Stop the clock before counting the objects, which traverses the whole model
+         final long loadTime = System.nanoTime() - loadStart;
+         record(file, SOURCE_FILE, byteCount, countObjects(resource), loadTime);
+         if (cacheKey != null && binaryResourceCache.isCacheable(cacheKey))
+         {
+            binaryResourceCache.store(cacheKey, (XMLResource) resource);
+         }
+         return resource;
+      } catch (final IOException e)
+      {
+         throw new WrappedException(e);
+      }
+   }
+
+   /**
+    * Writes all pending rows of the report and closes it
+    */
+   public void close() throws IOException
+   {
+      reportFile.close();
+      if (binaryResourceCache != null)
+      {
+         binaryResourceCache.close();
+      }
+   }
+
+   /**
+    * Parses the source file into the given resource and returns the number of bytes read
+    */
+   private long loadFromFile(final Resource resource, final ResourceSet resourceSet, final URI uri, final Map<Object, Object> options)
+         throws IOException
+   {
+      prepareResource(resource);
+      try (final CountingInputStream inputStream = new CountingInputStream(openInputStream(resourceSet, uri, options)))
+      {
+         resource.load(inputStream, options);
+         return inputStream.getByteCount();
+      }
+   }
+
+   /**
+    * Loads the given resource from the given cache entry and returns whether this has succeeded. Unreadable entries are
+    * deleted.
+    */
+   private boolean loadFromCache(final Resource resource, final File cacheEntry, final String cacheKey, final Map<Object, Object> options)
+   {
+      final Map<Object, Object> binaryOptions = new HashMap<>(options);
+      binaryOptions.put(XMLResource.OPTION_BINARY, Boolean.TRUE);
+      prepareResource(resource);
+      try (final InputStream inputStream = new BufferedInputStream(new FileInputStream(cacheEntry), BUFFER_SIZE_IN_BYTES))
+      {
+         resource.load(inputStream, binaryOptions);
+         return true;
+      } catch (final IOException | RuntimeException e)
+      {
+         logger.warn("Discarding unreadable entry of the binary resource cache for " + resource.getURI() + ": " + e);
+         resource.unload();
+         binaryResourceCache.invalidate(cacheKey);
+         return false;
+      }
+   }
+
+   /**
+    * Returns the key of the cache entry of the given file and hashes the file only if it has changed since it was hashed
+    * last
+    */
+   private String getCacheKey(final IFile file, final ResourceSet resourceSet, final URI uri, final Map<Object, Object> options)
+         throws IOException
+   {
+      final String path = file.getFullPath().toString();
+      final String stamp = ResultCache.stampOf(file);
+      final String rememberedKey = binaryResourceCache.getRememberedKey(path, stamp);
+      if (rememberedKey != null)
+         return rememberedKey;
+
+      try (final InputStream inputStream = openInputStream(resourceSet, uri, options))
+      {
+         return binaryResourceCache.computeKey(path, stamp, inputStream);
+      }
+   }
+
+   private void prepareResource(final Resource resource)
+   {
+      if (loadProfile == LoadProfile.FAST && resource instanceof ResourceImpl)
+      {
+         ((ResourceImpl) resource).setIntrinsicIDToEObjectMap(new HashMap<>());
+      }
+   }
+
+   private InputStream openInputStream(final ResourceSet resourceSet, final URI uri, final Map<Object, Object> options) throws IOException
+   {
+      final InputStream inputStream = resourceSet.getURIConverter().createInputStream(uri, options);
+      return loadProfile == LoadProfile.FAST ? new BufferedInputStream(inputStream, BUFFER_SIZE_IN_BYTES) : inputStream;
+   }
+
+   private void record(final IFile file, final String source, final long byteCount, final long objectCount, final long loadTimeInNanos)
+   {
+      final double loadTimeInSeconds = loadTimeInNanos / 1e9;
+      final ResultRow row = new ResultRow(getSchema().size());
+      row.addText(file.getFullPath().toString().replaceAll(ResultRow.CSV_SEP, "_"));
+      row.addText(loadProfile.name().toLowerCase(Locale.ENGLISH)).addText(source);
+      row.addInteger(byteCount).addInteger(objectCount).addMillis(loadTimeInNanos / 1e6);
+      row.addRatio(byteCount / 1e6 / loadTimeInSeconds).addRatio(objectCount / loadTimeInSeconds);
+      try
+      {
+         reportFile.append(row);
+      } catch (final IOException e)
+      {
+         logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+         EvaluationStatistics.getInstance().recordError();
+      }
+   }
+
+   private static long countObjects(final Resource resource)
+   {
+      long objectCount = 0;
+      for (final Iterator<EObject> iterator = resource.getAllContents(); iterator.hasNext(); iterator.next())
+      {
+         ++objectCount;
+      }
+      return objectCount;
+   }
+
+   private static Map<Object, Object> createFastLoadOptions()
+   {
+      final Map<Object, Object> options = new HashMap<>();
+      options.put(XMLResource.OPTION_USE_PARSER_POOL, new XMLParserPoolImpl());
+      options.put(XMLResource.OPTION_DEFER_IDREF_RESOLUTION, Boolean.TRUE);
+      options.put(XMLResource.OPTION_USE_DEPRECATED_METHODS, Boolean.FALSE);
+      options.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, Collections.synchronizedMap(new HashMap<>()));
+      options.put(XMLResource.OPTION_DISABLE_NOTIFY, Boolean.TRUE);
+      return Collections.unmodifiableMap(options);
+   }
+}
@@ -0,0 +1,200 @@
+package org.moflon.paper.incrviz;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Evaluates the candidates of a set of files using several {@link EvaluationWorker}s in parallel.
+ * 
+ * A work unit comprises one file. The files are sorted by their size on disk in descending order and are handed out to
+ * the workers on demand, so that the largest models do not end up at the tail of the run. A worker loads and indexes
+ * the file of its work unit, measures its candidates ordered by size (node count + edge count) in descending order, and
+ * unloads the file afterwards. Therefore, each file is parsed once, and each worker holds only one file at a time.
+ * 
+ * Progress reporting and cancellation are handled by the calling thread because {@link IProgressMonitor}s are not
+ * thread-safe.
+ */
+final class ParallelEvaluation
+{
+   private static final long POLLING_INTERVAL_IN_MILLIS = 200;
+
+   private final Logger logger = Logger.getLogger(ParallelEvaluation.class);
+
+   private final List<EvaluationWorker> workers;
+
+   private final AtomicBoolean canceled = new AtomicBoolean(false);
+
+   private volatile UncheckedIOException resultsFailure;
+
+   ParallelEvaluation(final Visualizer visualizer, final int workerCount)
+   {
+      this.workers = new ArrayList<>();
+      for (int i = 0; i < workerCount; ++i)
+      {
+         this.workers.add(new EvaluationWorker(visualizer.createWorker()));
+      }
+   }
+
+   /**
+    * Evaluates all candidates in the given files
+    * 
+    * @throws InterruptedException
+    *            if the user canceled the evaluation
+    */
+   public void run(final List<IFile> files, final IProgressMonitor monitor) throws InterruptedException
+   {
+      final ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+      try
+      {
+         monitor.beginTask(String.format("Collect visualization data of %d files using %d workers", files.size(), workers.size()), files.size());
+         measure(executor, sortBySizeOnDisk(files), monitor);
+      } finally
+      {
+         executor.shutdownNow();
+         executor.awaitTermination(1, TimeUnit.MINUTES);
+      }
+   }
+
+   private void measure(final ExecutorService executor, final List<IFile> files, final IProgressMonitor monitor) throws InterruptedException
+   {
+      final AtomicInteger nextFile = new AtomicInteger(0);
+      final AtomicInteger finishedFiles = new AtomicInteger(0);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (final EvaluationWorker worker : workers)
+      {
+         futures.add(executor.submit(() -> {
+            int fileIndex;
+            while (!canceled.get() && (fileIndex = nextFile.getAndIncrement()) < files.size())
+            {
+               try
+               {
+                  measure(worker, files.get(fileIndex));
+               } finally
+               {
+                  worker.unload();
+                  finishedFiles.incrementAndGet();
+               }
+            }
+         }));
+      }
+      awaitCompletion(futures, finishedFiles, monitor);
+   }
+
+   /**
+    * Indexes the given file and measures its candidates, largest first
+    */
+   private void measure(final EvaluationWorker worker, final IFile file)
+   {
+      final List<Candidate> candidates;
+      try
+      {
+         candidates = new ArrayList<>(worker.indexFile(file, new NullProgressMonitor()).getCandidates());
+      } catch (final RuntimeException e)
+      {
+         logException(e);
+         return;
+      }
+
+      candidates.sort(Comparator.comparingInt(Candidate::getSize).reversed());
+      for (final Candidate candidate : candidates)
+      {
+         if (canceled.get())
+            return;
+
+         try
+         {
+            worker.evaluate(candidate);
+         } catch (final UncheckedIOException e)
+         {
+            // The results cannot be written any more, so all workers stop
+            resultsFailure = e;
+            canceled.set(true);
+            return;
+         } catch (final Exception e)
+         {
+            logException(e);
+         }
+      }
+   }
+
+   /**
+    * Returns the given files sorted by their size on disk in descending order
+    */
+   private static List<IFile> sortBySizeOnDisk(final List<IFile> files)
+   {
+      final Map<IFile, Long> sizes = new HashMap<>();
+      for (final IFile file : files)
+      {
+         sizes.put(file, file.getLocation() != null ? file.getLocation().toFile().length() : 0L);
+      }
+      final List<IFile> sortedFiles = new ArrayList<>(files);
+      sortedFiles.sort(Comparator.comparing(sizes::get, Comparator.reverseOrder()));
+      return sortedFiles;
+   }
+
+   /**
+    * Waits until all futures are done while forwarding the progress and the cancellation state between the monitor and
+    * the workers
+    */
+   private void awaitCompletion(final List<Future<?>> futures, final AtomicInteger finished, final IProgressMonitor monitor)
+         throws InterruptedException
+   {
+      int reported = 0;
+      while (!futures.stream().allMatch(Future::isDone))
+      {
+         Thread.sleep(POLLING_INTERVAL_IN_MILLIS);
+         reported = reportProgress(finished, reported, monitor);
+         if (monitor.isCanceled())
+         {
+            canceled.set(true);
+         }
+      }
+      reportProgress(finished, reported, monitor);
+
+      for (final Future<?> future : futures)
+      {
+         try
+         {
+            future.get();
+         } catch (final ExecutionException e)
+         {
+            logException(e);
+         }
+      }
+
+      if (resultsFailure != null)
+         throw resultsFailure;
+      if (canceled.get())
+         throw new InterruptedException("User canceled");
+   }
+
+   private static int reportProgress(final AtomicInteger finished, final int alreadyReported, final IProgressMonitor monitor)
+   {
+      final int finishedNow = finished.get();
+      monitor.worked(finishedNow - alreadyReported);
+      return finishedNow;
+   }
+
+   private void logException(final Exception e)
+   {
+      logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+      EvaluationStatistics.getInstance().recordError();
+   }
+}
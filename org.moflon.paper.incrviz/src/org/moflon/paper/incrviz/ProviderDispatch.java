@@ -0,0 +1,116 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
+
+import SDMLanguage.activities.MoflonEOperation;
+
+/**
+ * Determines the diagram text provider and the type of model for an element.
+ * 
+ * The providers are tried in the order in which they have been registered, and the first provider that accepts an
+ * element wins. As the providers decide based on the type of an element, the outcome is cached per {@link EClass} so
+ * that scanning large models costs one hash lookup per element. Elements whose validity depends on their content (see
+ * {@link #isInstanceDependent(EObject)}) bypass the cache.
+ * 
+ * Not thread-safe, like the providers themselves.
+ */
+final class ProviderDispatch
+{
+   /**
+    * Outcome of a lookup
+    */
+   static final class Target
+   {
+      private final String type;
+
+      private final EMoflonDiagramTextProvider diagramTextProvider;
+
+      private Target(final String type, final EMoflonDiagramTextProvider diagramTextProvider)
+      {
+         this.type = type;
+         this.diagramTextProvider = diagramTextProvider;
+      }
+
+      public String getType()
+      {
+         return type;
+      }
+
+      public EMoflonDiagramTextProvider getDiagramTextProvider()
+      {
+         return diagramTextProvider;
+      }
+   }
+
+   private static final Target NO_TARGET = new Target(null, null);
+
+   private final List<Target> targets = new ArrayList<>();
+
+   private final Map<EClass, Target> targetsByEClass = new HashMap<>();
+
+   /**
+    * Registers the given provider with lower priority than all previously registered providers
+    */
+   public void register(final String type, final EMoflonDiagramTextProvider diagramTextProvider)
+   {
+      targets.add(new Target(type, diagramTextProvider));
+      targetsByEClass.clear();
+   }
+
+   /**
+    * Returns the type of model that the given element represents or null if none of the providers can handle it
+    */
+   public String getType(final EObject element)
+   {
+      return lookup(element).getType();
+   }
+
+   /**
+    * Returns the provider that visualizes the given element or null if none of the providers can handle it
+    */
+   public EMoflonDiagramTextProvider getDiagramTextProvider(final EObject element)
+   {
+      return lookup(element).getDiagramTextProvider();
+   }
+
+   private Target lookup(final EObject element)
+   {
+      if (isInstanceDependent(element))
+         return findTarget(element);
+
+      final EClass eClass = element.eClass();
+      Target target = targetsByEClass.get(eClass);
+      if (target == null)
+      {
+         target = findTarget(element);
+         targetsByEClass.put(eClass, target);
+      }
+      return target;
+   }
+
+   private Target findTarget(final EObject element)
+   {
+      for (final Target target : targets)
+      {
+         if (target.diagramTextProvider.isElementValidInput(element))
+            return target;
+      }
+      return NO_TARGET;
+   }
+
+   /**
+    * Returns whether the providers may decide differently for two elements of the same {@link EClass}. Operations are
+    * only visualized if they carry an SDM.
+    */
+   private static boolean isInstanceDependent(final EObject element)
+   {
+      return element instanceof MoflonEOperation;
+   }
+}
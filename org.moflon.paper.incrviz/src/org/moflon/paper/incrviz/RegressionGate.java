@@ -0,0 +1,336 @@
+package org.moflon.paper.incrviz;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.math3.stat.descriptive.rank.Median;
+import org.apache.commons.math3.stat.inference.MannWhitneyUTest;
+import org.apache.commons.math3.stat.inference.WilcoxonSignedRankTest;
+import org.apache.log4j.Logger;
+
+/**
+ * Compares the results of the current run with the results of a baseline run, e.g., before an upgrade of the eMoflon
+ * visualization bundles.
+ *
+ * Candidates are matched by their type and id. If a file contains several rows of a candidate (results files are
+ * appended to), the last row is used. Rows of a CSV file whose column count differs from the header (rows of runs with
+ * other settings) are skipped. For each candidate and measure (batch transformation of RQ1, incremental
+ * transformation of each change of RQ2), the repetition samples of both runs are compared using a Mann-Whitney U test.
+ * The samples are the wall-clock times measured by the harness (in nanoseconds), which unlike the durations reported
+ * by the providers (in milliseconds) also resolve sub-millisecond runs.
+ * For each type and measure, the medians of the matched candidates are compared pairwise using a Wilcoxon signed-rank
+ * test. A type regresses if the median of the per-candidate slowdowns exceeds the threshold and the difference is
+ * significant. Only regressions per type fail the gate; regressions of single candidates are only reported.
+ *
+ * Usage as standalone program: java org.moflon.paper.incrviz.RegressionGate baseline.csv current.csv [report.csv]. The
+ * exit code is {@link #EXIT_REGRESSION} if a type regresses and {@link #EXIT_INCOMPLETE} if the files cannot be compared.
+ */
+public final class RegressionGate
+{
+   /**
+    * Exit code of the standalone program and the headless application if a type regresses
+    */
+   public static final int EXIT_REGRESSION = 3;
+
+   /**
+    * Exit code of the standalone program and the headless application if the comparison cannot be completed, e.g., because
+    * a results file cannot be read or no candidate of the current run is part of the baseline
+    */
+   public static final int EXIT_INCOMPLETE = 4;
+
+   static final String REPORT_FILE_NAME = "incrviz_regression.csv";
+
+   private static final String ALL_CANDIDATES = "*";
+
+   private static final List<String> TEXT_COLUMNS = Arrays.asList("datetime", "project", "type", "id");
+
+   /**
+    * Repetition columns of the measures: the name of the measure followed by the number of the repetition
+    */
+   private static final Pattern REPETITION_COLUMN = Pattern.compile("(RQ1_wallNanosBatch|RQ2_C\\d+_[A-Za-z]+_wallNanosIncr)_\\d+");
+
+   private static final int COLUMN_COUNT = getSchema().size();
+
+   private final Logger logger = Logger.getLogger(RegressionGate.class);
+
+   private final double threshold;
+
+   private final double significanceLevel;
+
+   /**
+    * @param threshold
+    *           maximum tolerated relative slowdown of the median, e.g., 0.1 for 10%
+    * @param significanceLevel
+    *           significance level of the tests, e.g., 0.05
+    */
+   RegressionGate(final double threshold, final double significanceLevel)
+   {
+      this.threshold = threshold;
+      this.significanceLevel = significanceLevel;
+   }
+
+   public static void main(final String[] args)
+   {
+      if (args.length < 2 || args.length > 3)
+      {
+         System.err.println("Usage: RegressionGate <baseline results file> <current results file> [<report file>]");
+         System.exit(1);
+      }
+      final File currentFile = new File(args[1]);
+      final File reportFile = args.length == 3 ? new File(args[2]) : new File(currentFile.getAbsoluteFile().getParentFile(), REPORT_FILE_NAME);
+      final EvaluationConfiguration configuration = EvaluationConfiguration.fromSystemProperties();
+      try
+      {
+         final boolean isRegression = new RegressionGate(configuration.getRegressionThreshold(), configuration.getSignificanceLevel())
+               .check(new File(args[0]), currentFile, reportFile);
+         System.exit(isRegression ? EXIT_REGRESSION : 0);
+      } catch (final IOException | RuntimeException e)
+      {
+         Logger.getLogger(RegressionGate.class).error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+         System.exit(EXIT_INCOMPLETE);
+      }
+   }
+
+   /**
+    * Returns the layout of the report, which has one row per candidate and measure and one row per type and measure
+    */
+   static ResultsSchema getSchema()
+   {
+      final ResultsSchema schema = new ResultsSchema();
+      schema.add("type", ColumnType.TEXT);
+      schema.add("id", ColumnType.TEXT);
+      schema.add("measure", ColumnType.TEXT);
+      schema.add("sampleCount", ColumnType.INTEGER);
+      schema.add("baselineMedian", ColumnType.RATIO);
+      schema.add("currentMedian", ColumnType.RATIO);
+      schema.add("medianSlowdown", ColumnType.RATIO);
+      schema.add("pValue", ColumnType.RATIO);
+      schema.add("regression", ColumnType.INTEGER);
+      return schema;
+   }
+
+   /**
+    * Compares the given results files, writes the report and returns whether any type regresses.
+    * 
+    * @throws IllegalStateException
+    *            if no candidate of the current results file is part of the baseline
+    */
+   public boolean check(final File baselineFile, final File currentFile, final File reportFile) throws IOException
+   {
+      final Map<String, Map<String, double[]>> baseline = readSamples(baselineFile);
+      final Map<String, Map<String, double[]>> current = readSamples(currentFile);
+
+      final List<String> lines = new ArrayList<>();
+      lines.add(String.join(ResultRow.CSV_SEP, getSchema().getNames()));
+
+      // Per type and measure: pairs of medians (baseline, current) of the matched candidates
+      final Map<String, List<double[]>> medianPairsPerTypeAndMeasure = new TreeMap<>();
+      int matchedCandidateCount = 0;
+      for (final Map.Entry<String, Map<String, double[]>> candidate : current.entrySet())
+      {
+         final Map<String, double[]> baselineSamples = baseline.get(candidate.getKey());
+         if (baselineSamples == null)
+            continue;
+
+         ++matchedCandidateCount;
+         final String[] typeAndId = candidate.getKey().split(ResultRow.CSV_SEP, 2);
+         for (final Map.Entry<String, double[]> measure : candidate.getValue().entrySet())
+         {
+            final double[] baselineValues = baselineSamples.get(measure.getKey());
+            final double[] currentValues = measure.getValue();
+            if (baselineValues == null || baselineValues.length == 0 || currentValues.length == 0)
+               continue;
+
+            final double baselineMedian = median(baselineValues);
+            final double currentMedian = median(currentValues);
+            final double slowdown = currentMedian / baselineMedian - 1;
+            final double pValue = new MannWhitneyUTest().mannWhitneyUTest(baselineValues, currentValues);
+            lines.add(toRow(typeAndId[0], typeAndId[1], measure.getKey(), currentValues.length, baselineMedian, currentMedian, slowdown, pValue)
+                  .toCsv());
+            if (baselineMedian > 0 && currentMedian > 0)
+            {
+               medianPairsPerTypeAndMeasure.computeIfAbsent(typeAndId[0] + ResultRow.CSV_SEP + measure.getKey(), key -> new ArrayList<>())
+                     .add(new double[] { baselineMedian, currentMedian });
+            }
+         }
+      }
+
+      if (matchedCandidateCount == 0)
+         throw new IllegalStateException(
+               "None of the " + current.size() + " candidates of " + currentFile + " is part of the baseline " + baselineFile);
+
+      boolean isRegression = false;
+      for (final Map.Entry<String, List<double[]>> entry : medianPairsPerTypeAndMeasure.entrySet())
+      {
+         final String[] typeAndMeasure = entry.getKey().split(ResultRow.CSV_SEP, 2);
+         final List<double[]> medianPairs = entry.getValue();
+         final double[] baselineMedians = medianPairs.stream().mapToDouble(pair -> pair[0]).toArray();
+         final double[] currentMedians = medianPairs.stream().mapToDouble(pair -> pair[1]).toArray();
+         final double medianSlowdown = median(medianPairs.stream().mapToDouble(pair -> pair[1] / pair[0]).toArray()) - 1;
+         final double pValue = testPairedMedians(baselineMedians, currentMedians);
+
+         final ResultRow row = toRow(typeAndMeasure[0], ALL_CANDIDATES, typeAndMeasure[1], medianPairs.size(), median(baselineMedians),
+               median(currentMedians), medianSlowdown, pValue);
+         lines.add(row.toCsv());
+         if (isRegression(medianSlowdown, pValue))
+         {
+            isRegression = true;
+            logger.warn(String.format("Regression of %s for %s: median slowdown %.1f%% (p = %.4f, %d candidates)", typeAndMeasure[1],
+                  typeAndMeasure[0], 100 * medianSlowdown, pValue, medianPairs.size()));
+         }
+      }
+
+      reportFile.getAbsoluteFile().getParentFile().mkdirs();
+      FileUtils.writeLines(reportFile, StandardCharsets.UTF_8.name(), lines, false);
+      logger.info(String.format("Compared %d of %d candidates with baseline %s: %s. Report: %s", matchedCandidateCount, current.size(), baselineFile,
+            isRegression ? "regression" : "no regression", reportFile));
+      return isRegression;
+   }
+
+   private ResultRow toRow(final String type, final String id, final String measure, final int sampleCount, final double baselineMedian,
+         final double currentMedian, final double slowdown, final double pValue)
+   {
+      final ResultRow row = new ResultRow(COLUMN_COUNT);
+      row.addText(type).addText(id).addText(measure).addInteger(sampleCount);
+      for (final double value : new double[] { baselineMedian, currentMedian, slowdown, pValue })
+      {
+         if (Double.isNaN(value) || Double.isInfinite(value))
+            row.addMissing();
+         else
+            row.addRatio(value);
+      }
+      row.addInteger(isRegression(slowdown, pValue) ? 1 : 0);
+      return row;
+   }
+
+   private boolean isRegression(final double slowdown, final double pValue)
+   {
+      return slowdown > this.threshold && pValue < this.significanceLevel;
+   }
+
+   /**
+    * Reads the repetition samples of all measures per candidate (key: type and id) from the given CSV or binary results
+    * file
+    */
+   static Map<String, Map<String, double[]>> readSamples(final File resultsFile) throws IOException
+   {
+      final Map<String, Map<String, double[]>> samples = new LinkedHashMap<>();
+      final ColumnarResultsReader.ResultsHandler handler = new ColumnarResultsReader.ResultsHandler() {
+         private int typeColumn;
+
+         private int idColumn;
+
+         private final Map<String, List<Integer>> columnsPerMeasure = new LinkedHashMap<>();
+
+         @Override
+         public void handleSchema(final ResultsSchema schema)
+         {
+            typeColumn = schema.getNames().indexOf("type");
+            idColumn = schema.getNames().indexOf("id");
+            if (typeColumn < 0 || idColumn < 0)
+               throw new IllegalArgumentException("Not a results file: " + resultsFile);
+
+            for (int column = 0; column < schema.size(); ++column)
+            {
+               final Matcher matcher = REPETITION_COLUMN.matcher(schema.getName(column));
+               if (matcher.matches())
+                  columnsPerMeasure.computeIfAbsent(matcher.group(1), measure -> new ArrayList<>()).add(column);
+            }
+         }
+
+         @Override
+         public void handleRow(final ResultRow row)
+         {
+            final Map<String, double[]> samplesOfRow = new HashMap<>();
+            for (final Map.Entry<String, List<Integer>> measure : columnsPerMeasure.entrySet())
+            {
+               samplesOfRow.put(measure.getKey(), measure.getValue().stream().filter(column -> column < row.size() && !row.isMissing(column))
+                     .mapToDouble(row::getNumber).toArray());
+            }
+            // Later rows replace earlier rows of the same candidate
+            samples.put(row.getText(typeColumn) + ResultRow.CSV_SEP + row.getText(idColumn), samplesOfRow);
+         }
+      };
+
+      if (resultsFile.getName().endsWith(".csv"))
+      {
+         readCsv(resultsFile, handler);
+      } else
+      {
+         ColumnarResultsReader.read(resultsFile, handler);
+      }
+      return samples;
+   }
+
+   /**
+    * Reads a CSV results file. The types of the columns are not part of the file, so all columns except for the general
+    * information are read as numbers.
+    */
+   private static void readCsv(final File csvFile, final ColumnarResultsReader.ResultsHandler handler) throws IOException
+   {
+      try (final BufferedReader reader = Files.newBufferedReader(csvFile.toPath(), StandardCharsets.UTF_8))
+      {
+         final String header = reader.readLine();
+         if (header == null)
+            throw new IllegalArgumentException("Empty results file: " + csvFile);
+
+         final ResultsSchema schema = new ResultsSchema();
+         for (final String name : header.split(ResultRow.CSV_SEP, -1))
+         {
+            schema.add(name, TEXT_COLUMNS.contains(name) ? ColumnType.TEXT : ColumnType.RATIO);
+         }
+         handler.handleSchema(schema);
+
+         int skippedRowCount = 0;
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            if (line.isEmpty())
+               continue;
+
+            if (line.split(ResultRow.CSV_SEP, -1).length != schema.size())
+            {
+               ++skippedRowCount;
+               continue;
+            }
+            handler.handleRow(ResultRow.parseCsv(line, schema));
+         }
+         if (skippedRowCount > 0)
+         {
+            Logger.getLogger(RegressionGate.class).warn("Skipped " + skippedRowCount + " rows of " + csvFile + " whose column count differs from the header");
+         }
+      }
+   }
+
+   /**
+    * Returns the p-value of the Wilcoxon signed-rank test of the given pairs (exact for up to 30 pairs), 1 if all pairs are
+    * equal, or NaN if there are fewer than two pairs
+    */
+   private static double testPairedMedians(final double[] baselineMedians, final double[] currentMedians)
+   {
+      if (baselineMedians.length < 2)
+         return Double.NaN;
+      if (Arrays.equals(baselineMedians, currentMedians))
+         return 1.0;
+      return new WilcoxonSignedRankTest().wilcoxonSignedRankTest(baselineMedians, currentMedians, baselineMedians.length <= 30);
+   }
+
+   private static double median(final double[] values)
+   {
+      return new Median().evaluate(values);
+   }
+}
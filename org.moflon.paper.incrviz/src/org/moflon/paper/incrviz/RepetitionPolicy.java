@@ -0,0 +1,97 @@
+package org.moflon.paper.incrviz;
+
+import java.util.List;
+
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+
+/**
+ * Decides how often a measurement is repeated.
+ * 
+ * Each measurement is preceded by a number of warmup iterations, whose results are discarded. Afterwards, the
+ * measurement is repeated at least {@link #getMinimumRepetitions()} times. In adaptive mode, the measurement is
+ * repeated until the confidence interval of the median of every observed series is narrower than the target width
+ * (relative to the median) or until the maximum number of repetitions has been reached.
+ */
+final class RepetitionPolicy
+{
+   /**
+    * Confidence level of the interval around the median
+    */
+   static final double CONFIDENCE_LEVEL = 0.95;
+
+   private final int warmupIterations;
+
+   private final int minimumRepetitions;
+
+   private final int maximumRepetitions;
+
+   private final boolean adaptive;
+
+   private final double targetRelativeWidth;
+
+   RepetitionPolicy(final EvaluationConfiguration configuration)
+   {
+      this.warmupIterations = configuration.getWarmupIterations();
+      this.minimumRepetitions = configuration.getRepetitions();
+      this.maximumRepetitions = Math.max(configuration.getMaximumRepetitions(), configuration.getRepetitions());
+      this.adaptive = configuration.isAdaptiveRepetitions();
+      this.targetRelativeWidth = configuration.getTargetRelativeWidth();
+   }
+
+   public int getWarmupIterations()
+   {
+      return warmupIterations;
+   }
+
+   /**
+    * Returns the number of repetitions that is always performed. The results file contains one column per repetition for
+    * this many repetitions.
+    */
+   public int getMinimumRepetitions()
+   {
+      return minimumRepetitions;
+   }
+
+   /**
+    * Returns whether the given series (which have been measured in lockstep) contain enough samples
+    */
+   public boolean isComplete(final List<DescriptiveStatistics> series)
+   {
+      final long sampleCount = series.get(0).getN();
+      if (sampleCount < minimumRepetitions)
+         return false;
+      if (!adaptive || sampleCount >= maximumRepetitions)
+         return true;
+
+      return series.stream().allMatch(statistics -> getRelativeWidthOfMedianConfidenceInterval(statistics) <= targetRelativeWidth);
+   }
+
+   /**
+    * Returns the width of the distribution-free confidence interval of the median, divided by the median.
+    * 
+    * The interval is spanned by the order statistics x_(j) and x_(n-j+1), where j is chosen based on the Binomial(n, 0.5)
+    * distribution of the number of samples below the median. Returns positive infinity if there are too few samples to
+    * obtain an interval at {@link #CONFIDENCE_LEVEL}.
+    */
+   static double getRelativeWidthOfMedianConfidenceInterval(final DescriptiveStatistics statistics)
+   {
+      final int sampleCount = (int) statistics.getN();
+      if (sampleCount == 0)
+         return Double.POSITIVE_INFINITY;
+
+      final BinomialDistribution distribution = new BinomialDistribution(null, sampleCount, 0.5);
+      final int rankOfLowerBound = distribution.inverseCumulativeProbability((1 - CONFIDENCE_LEVEL) / 2);
+      if (rankOfLowerBound < 1)
+         return Double.POSITIVE_INFINITY;
+
+      final double[] sortedValues = statistics.getSortedValues();
+      final double lowerBound = sortedValues[rankOfLowerBound - 1];
+      final double upperBound = sortedValues[sampleCount - rankOfLowerBound];
+      final double width = upperBound - lowerBound;
+      final double median = statistics.getPercentile(50);
+      if (width == 0)
+         return 0;
+      return median > 0 ? width / median : Double.POSITIVE_INFINITY;
+   }
+}
@@ -0,0 +1,223 @@
+package org.moflon.paper.incrviz;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.eclipse.core.resources.IFile;
+
+/**
+ * Persistent index of the results of previous runs, which allows to re-evaluate only those files that have changed
+ * since.
+ * 
+ * For each file, the index stores the modification stamp of the file at the time it was indexed, the URI fragments of
+ * all of its candidates, and the most recent results row of each candidate. An entry is only persisted if a row exists
+ * for each candidate of the file, i.e., files that have been evaluated partially (e.g., due to cancellation or errors)
+ * are re-evaluated in the next run.
+ * 
+ * The index is invalidated as a whole if the header of the results file changes.
+ */
+final class ResultCache
+{
+   static final String FILE_NAME = "incrviz_index.tsv";
+
+   private static final String SIGNATURE_PREFIX = "#signature\t";
+
+   private static final String FILE_PREFIX = "F\t";
+
+   private static final String CANDIDATE_PREFIX = "C\t";
+
+   private static final String SEP = "\t";
+
+   private final Logger logger = Logger.getLogger(ResultCache.class);
+
+   private final File indexFile;
+
+   private final String signature;
+
+   private final Map<String, FileEntry> previousEntries;
+
+   private final Map<String, FileEntry> currentEntries = new LinkedHashMap<>();
+
+   private ResultCache(final File indexFile, final String signature, final Map<String, FileEntry> previousEntries)
+   {
+      this.indexFile = indexFile;
+      this.signature = signature;
+      this.previousEntries = previousEntries;
+   }
+
+   /**
+    * Loads the index from the given root folder.
+    * 
+    * @param signature
+    *           identifies the layout of the results rows. Entries that have been stored with a different signature are
+    *           discarded.
+    */
+   public static ResultCache load(final File rootFolder, final String signature)
+   {
+      final File indexFile = new File(rootFolder, FILE_NAME);
+      final Map<String, FileEntry> entries = new HashMap<>();
+      final ResultCache resultCache = new ResultCache(indexFile, signature, entries);
+      if (indexFile.exists())
+      {
+         try
+         {
+            resultCache.read(entries);
+         } catch (final IOException | RuntimeException e)
+         {
+            resultCache.logger.warn("Ignoring unreadable index " + indexFile + ": " + e);
+            entries.clear();
+         }
+      }
+      return resultCache;
+   }
+
+   /**
+    * Returns whether the given file has not changed since its candidates have been evaluated completely
+    */
+   public synchronized boolean isUnchanged(final IFile file)
+   {
+      final FileEntry entry = previousEntries.get(pathOf(file));
+      return entry != null && entry.stamp.equals(stampOf(file));
+   }
+
+   /**
+    * Takes over the entry of the given unchanged file into the current index and returns the stored results rows of the
+    * file
+    */
+   public synchronized List<String> carryForward(final IFile file)
+   {
+      final FileEntry entry = previousEntries.get(pathOf(file));
+      if (entry == null)
+         throw new IllegalStateException("No results available for " + file);
+
+      currentEntries.put(pathOf(file), entry);
+      return new ArrayList<>(entry.rowsByFragment.values());
+   }
+
+   /**
+    * Records that the given file has been indexed and contains the given candidates
+    */
+   public synchronized void recordFile(final IFile file, final List<Candidate> candidates)
+   {
+      final FileEntry entry = new FileEntry(stampOf(file), candidates.size());
+      currentEntries.put(pathOf(file), entry);
+   }
+
+   /**
+    * Records the results row of the given candidate
+    */
+   public synchronized void recordResult(final Candidate candidate, final String row)
+   {
+      final FileEntry entry = currentEntries.get(pathOf(candidate.getFile()));
+      if (entry != null)
+         entry.rowsByFragment.put(candidate.getUriFragment(), row);
+   }
+
+   /**
+    * Writes all complete entries of the current run to disk, replacing the previous index
+    */
+   public synchronized void save() throws IOException
+   {
+      indexFile.getParentFile().mkdirs();
+      final File temporaryFile = new File(indexFile.getParentFile(), FILE_NAME + ".tmp");
+      int savedFiles = 0;
+      try (final BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8))
+      {
+         writer.write(SIGNATURE_PREFIX + signature);
+         writer.newLine();
+         for (final Map.Entry<String, FileEntry> pathAndEntry : currentEntries.entrySet())
+         {
+            final FileEntry entry = pathAndEntry.getValue();
+            if (!entry.isComplete())
+               continue;
+
+            writer.write(FILE_PREFIX + pathAndEntry.getKey() + SEP + entry.stamp + SEP + entry.candidateCount);
+            writer.newLine();
+            for (final Map.Entry<String, String> fragmentAndRow : entry.rowsByFragment.entrySet())
+            {
+               writer.write(CANDIDATE_PREFIX + fragmentAndRow.getKey() + SEP + fragmentAndRow.getValue());
+               writer.newLine();
+            }
+            ++savedFiles;
+         }
+      }
+      Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      logger.info(String.format("Stored results of %d files in %s", savedFiles, indexFile));
+   }
+
+   private void read(final Map<String, FileEntry> entries) throws IOException
+   {
+      try (final BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8))
+      {
+         final String firstLine = reader.readLine();
+         if (firstLine == null || !firstLine.equals(SIGNATURE_PREFIX + signature))
+         {
+            logger.info("Layout of results has changed. Discarding " + indexFile);
+            return;
+         }
+
+         FileEntry currentEntry = null;
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            if (line.startsWith(FILE_PREFIX))
+            {
+               final String[] fields = line.substring(FILE_PREFIX.length()).split(SEP);
+               currentEntry = new FileEntry(fields[1], Integer.parseInt(fields[2]));
+               entries.put(fields[0], currentEntry);
+            } else if (line.startsWith(CANDIDATE_PREFIX) && currentEntry != null)
+            {
+               final String[] fields = line.substring(CANDIDATE_PREFIX.length()).split(SEP, 2);
+               currentEntry.rowsByFragment.put(fields[0], fields[1]);
+            }
+         }
+      }
+
+      // Entries may only be used if they are complete
+      entries.values().removeIf(entry -> !entry.isComplete());
+   }
+
+   private static String pathOf(final IFile file)
+   {
+      return file.getFullPath().toString();
+   }
+
+   /**
+    * The stamp changes whenever the content of the file is modified, either via the workspace or externally
+    */
+   static String stampOf(final IFile file)
+   {
+      return file.getModificationStamp() + ":" + file.getLocalTimeStamp();
+   }
+
+   private static final class FileEntry
+   {
+      private final String stamp;
+
+      private final int candidateCount;
+
+      private final Map<String, String> rowsByFragment = new LinkedHashMap<>();
+
+      FileEntry(final String stamp, final int candidateCount)
+      {
+         this.stamp = stamp;
+         this.candidateCount = candidateCount;
+      }
+
+      boolean isComplete()
+      {
+         return rowsByFragment.size() == candidateCount;
+      }
+   }
+}
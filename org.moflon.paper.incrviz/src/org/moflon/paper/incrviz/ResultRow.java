@@ -0,0 +1,185 @@
+package org.moflon.paper.incrviz;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * One row of the results with typed cells.
+ * 
+ * Numbers are stored as primitives and are only formatted if the row is written as text.
+ */
+final class ResultRow
+{
+   static final String CSV_SEP = ";";
+
+   static final String VALUE_FOR_NON_AVAILABLE_CELLS = "NA";
+
+   /**
+    * Marks cells without value, which are written as {@link #VALUE_FOR_NON_AVAILABLE_CELLS}
+    */
+   private static final byte MISSING = -1;
+
+   private byte[] types;
+
+   private double[] numbers;
+
+   private String[] texts;
+
+   private int size;
+
+   ResultRow(final int expectedSize)
+   {
+      this.types = new byte[expectedSize];
+      this.numbers = new double[expectedSize];
+      this.texts = new String[expectedSize];
+      this.size = 0;
+   }
+
+   public ResultRow addText(final String value)
+   {
+      ensureCapacity();
+      texts[size] = value;
+      types[size++] = (byte) ColumnType.TEXT.ordinal();
+      return this;
+   }
+
+   public ResultRow addInteger(final long value)
+   {
+      return addNumber(ColumnType.INTEGER, value);
+   }
+
+   public ResultRow addMillis(final double value)
+   {
+      return addNumber(ColumnType.MILLIS, value);
+   }
+
+   public ResultRow addRatio(final double value)
+   {
+      return addNumber(ColumnType.RATIO, value);
+   }
+
+   public ResultRow addMissing()
+   {
+      ensureCapacity();
+      types[size++] = MISSING;
+      return this;
+   }
+
+   public int size()
+   {
+      return size;
+   }
+
+   public boolean isMissing(final int column)
+   {
+      return types[column] == MISSING;
+   }
+
+   public String getText(final int column)
+   {
+      return texts[column];
+   }
+
+   public double getNumber(final int column)
+   {
+      return numbers[column];
+   }
+
+   /**
+    * Returns the row in the format of the CSV results file
+    */
+   public String toCsv()
+   {
+      final StringBuilder builder = new StringBuilder(16 * size);
+      for (int column = 0; column < size; ++column)
+      {
+         if (column > 0)
+            builder.append(CSV_SEP);
+
+         if (types[column] == MISSING)
+         {
+            builder.append(VALUE_FOR_NON_AVAILABLE_CELLS);
+         } else
+         {
+            switch (ColumnType.values()[types[column]])
+            {
+            case TEXT:
+               builder.append(texts[column]);
+               break;
+            case INTEGER:
+               builder.append((long) numbers[column]);
+               break;
+            case MILLIS:
+               builder.append(formatTimeInMillis(numbers[column]));
+               break;
+            case RATIO:
+               builder.append(numbers[column]);
+               break;
+            }
+         }
+      }
+      return builder.toString();
+   }
+
+   /**
+    * Parses a row of the CSV results file that adheres to the given schema
+    */
+   public static ResultRow parseCsv(final String line, final ResultsSchema schema)
+   {
+      final String[] cells = line.split(CSV_SEP, -1);
+      if (cells.length != schema.size())
+         throw new IllegalArgumentException("Invalid column count: " + cells.length + ". Expected: " + schema.size());
+
+      final ResultRow row = new ResultRow(cells.length);
+      for (int column = 0; column < cells.length; ++column)
+      {
+         final String cell = cells[column];
+         if (VALUE_FOR_NON_AVAILABLE_CELLS.equals(cell))
+         {
+            row.addMissing();
+            continue;
+         }
+
+         switch (schema.getType(column))
+         {
+         case TEXT:
+            row.addText(cell);
+            break;
+         case INTEGER:
+            row.addInteger(Long.parseLong(cell));
+            break;
+         case MILLIS:
+            row.addMillis(Double.parseDouble(cell));
+            break;
+         case RATIO:
+            row.addRatio(Double.parseDouble(cell));
+            break;
+         }
+      }
+      return row;
+   }
+
+   static String formatTimeInMillis(final double timeInMillis)
+   {
+      return String.format(Locale.US, "%.2f", timeInMillis);
+   }
+
+   private ResultRow addNumber(final ColumnType type, final double value)
+   {
+      ensureCapacity();
+      numbers[size] = value;
+      types[size++] = (byte) type.ordinal();
+      return this;
+   }
+
+   private void ensureCapacity()
+   {
+      if (size == types.length)
+      {
+         final int newCapacity = Math.max(8, 2 * types.length);
+         types = Arrays.copyOf(types, newCapacity);
+         numbers = Arrays.copyOf(numbers, newCapacity);
+         texts = Arrays.copyOf(texts, newCapacity);
+      }
+   }
+}
@@ -0,0 +1,131 @@
+package org.moflon.paper.incrviz;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The CSV file that receives one row per evaluated candidate.
+ * 
+ * The file is opened once (on the first row) and kept open until {@link #close()} is invoked. Rows are buffered and
+ * flushed whenever the buffer is full or {@link #FLUSH_INTERVAL_IN_MILLIS} have passed since the last flush. Every
+ * {@link #CHECKPOINT_INTERVAL_IN_MILLIS} and on {@link #close()}, the file is additionally synced to disk.
+ * 
+ * Rows may be appended concurrently by several {@link Visualizer}s.
+ */
+final class ResultsFile implements ResultsSink
+{
+   private static final int BUFFER_SIZE_IN_CHARS = 1 << 16;
+
+   private static final long FLUSH_INTERVAL_IN_MILLIS = 2000;
+
+   private static final long CHECKPOINT_INTERVAL_IN_MILLIS = 30000;
+
+   private final File targetFile;
+
+   private final String header;
+
+   private FileOutputStream outputStream;
+
+   private BufferedWriter writer;
+
+   private long lastFlush;
+
+   private long lastCheckpoint;
+
+   ResultsFile(final File targetFile, final String header)
+   {
+      this.targetFile = targetFile;
+      this.header = header;
+   }
+
+   @Override
+   public void append(final ResultRow row) throws IOException
+   {
+      append(row.toCsv());
+   }
+
+   /**
+    * Appends the given row. The header is written first if the file is empty.
+    */
+   private synchronized void append(final String row) throws IOException
+   {
+      if (writer == null)
+      {
+         open();
+      }
+
+      writer.write(row);
+      writer.newLine();
+
+      final long now = System.currentTimeMillis();
+      if (now - lastCheckpoint >= CHECKPOINT_INTERVAL_IN_MILLIS)
+      {
+         checkpoint();
+      } else if (now - lastFlush >= FLUSH_INTERVAL_IN_MILLIS)
+      {
+         flush();
+      }
+   }
+
+   /**
+    * Writes all buffered rows and syncs the file to disk so that no rows are lost if the process crashes afterwards
+    */
+   public synchronized void checkpoint() throws IOException
+   {
+      if (writer != null)
+      {
+         flush();
+         outputStream.getChannel().force(false);
+         lastCheckpoint = lastFlush;
+      }
+   }
+
+   /**
+    * Writes all buffered rows, syncs and closes the file. Appending another row re-opens the file.
+    */
+   @Override
+   public synchronized void close() throws IOException
+   {
+      if (writer != null)
+      {
+         try
+         {
+            checkpoint();
+         } finally
+         {
+            writer.close();
+            writer = null;
+            outputStream = null;
+         }
+      }
+   }
+
+   public File getTargetFile()
+   {
+      return targetFile;
+   }
+
+   private void open() throws IOException
+   {
+      targetFile.getParentFile().mkdirs();
+      outputStream = new FileOutputStream(targetFile, true);
+      writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE_IN_CHARS);
+      if (outputStream.getChannel().size() == 0)
+      {
+         writer.write(header);
+         writer.newLine();
+      }
+      lastFlush = System.currentTimeMillis();
+      lastCheckpoint = lastFlush;
+   }
+
+   private void flush() throws IOException
+   {
+      writer.flush();
+      lastFlush = System.currentTimeMillis();
+   }
+}
@@ -0,0 +1,56 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Names and types of the columns of the results
+ */
+final class ResultsSchema
+{
+   private final List<String> names = new ArrayList<>();
+
+   private final List<ColumnType> types = new ArrayList<>();
+
+   public void add(final String name, final ColumnType type)
+   {
+      this.names.add(name);
+      this.types.add(type);
+   }
+
+   public int size()
+   {
+      return names.size();
+   }
+
+   public String getName(final int column)
+   {
+      return names.get(column);
+   }
+
+   public ColumnType getType(final int column)
+   {
+      return types.get(column);
+   }
+
+   public List<String> getNames()
+   {
+      return Collections.unmodifiableList(names);
+   }
+
+   @Override
+   public boolean equals(final Object other)
+   {
+      if (!(other instanceof ResultsSchema))
+         return false;
+      final ResultsSchema otherSchema = (ResultsSchema) other;
+      return names.equals(otherSchema.names) && types.equals(otherSchema.types);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return 31 * names.hashCode() + types.hashCode();
+   }
+}
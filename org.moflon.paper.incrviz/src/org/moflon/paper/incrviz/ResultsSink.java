@@ -0,0 +1,16 @@
+package org.moflon.paper.incrviz;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of the results. Implementations must be thread-safe.
+ */
+interface ResultsSink
+{
+   void append(ResultRow row) throws IOException;
+
+   /**
+    * Writes all pending rows and releases the underlying file. Appending another row re-opens the file.
+    */
+   void close() throws IOException;
+}
@@ -0,0 +1,258 @@
+package org.moflon.paper.incrviz;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.apache.log4j.Logger;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.emf.ecore.EObject;
+import org.moflon.core.utilities.WorkspaceHelper;
+import org.moflon.paper.incrviz.SizeMetrics.SubtreeSize;
+import org.moflon.paper.incrviz.SyntheticModelGenerator.Shape;
+
+/**
+ * Measures how the diagram text providers scale with the size of their input.
+ *
+ * For TGG rules, SDM activities and precedence graphs, the first candidate of the workspace with at least
+ * {@link #MINIMUM_TEMPLATE_NODE_COUNT} nodes serves as template for a series of synthetic models with an increasing
+ * number of copies (see {@link SyntheticModelGenerator}). Each synthetic model is measured like any other candidate (RQ1
+ * and, for TGG rules, RQ2) by a separate {@link Visualizer}, which writes its rows to scalability/incrviz_results.csv.
+ *
+ * Afterwards, a power law t = a * size^b is fitted to each series of median wall-clock times by a linear regression of
+ * log(t) on log(size). The growth exponent b is written to incrviz_scalability.csv: b close to 1 indicates linear growth,
+ * b clearly above 1 superlinear growth.
+ */
+final class ScalabilityStudy
+{
+   private static final int MINIMUM_TEMPLATE_NODE_COUNT = 3;
+
+   private static final String SUBFOLDER = "scalability";
+
+   private static final List<String> TEMPLATE_TYPES = Arrays.asList(Visualizer.TGG_RULE_TYPE, Visualizer.SDM_TYPE, Visualizer.PRECEDENCE_GRAPH_TYPE);
+
+   /**
+    * Columns of the results of the {@link Visualizer} to which a growth curve is fitted
+    */
+   private static final List<String> MEASURES = Arrays.asList("RQ1_wallNanosBatch_median", "RQ2_C1_add_wallNanosIncr_median",
+         "RQ2_C1_add_wallNanosBatch_median");
+
+   private static final int COLUMN_COUNT = getSchema().size();
+
+   private final Logger logger = Logger.getLogger(ScalabilityStudy.class);
+
+   private final Visualizer visualizer;
+
+   private final SyntheticModelGenerator generator = new SyntheticModelGenerator();
+
+   private final List<Integer> copies;
+
+   private final double edgeDensity;
+
+   private final int nestingDepth;
+
+   private final ResultsSink resultsSink;
+
+   ScalabilityStudy(final EvaluationConfiguration configuration)
+   {
+      this.visualizer = new Visualizer(createConfigurationOfVisualizer(configuration));
+      this.copies = configuration.getScalabilityCopies();
+      this.edgeDensity = configuration.getScalabilityEdgeDensity();
+      this.nestingDepth = configuration.getScalabilityNestingDepth();
+      this.resultsSink = new ResultsFile(new File(configuration.getRootFolder(), "incrviz_scalability.csv"),
+            String.join(ResultRow.CSV_SEP, getSchema().getNames()));
+   }
+
+   /**
+    * Returns the layout of the rows of incrviz_scalability.csv, one per template and measure
+    */
+   static ResultsSchema getSchema()
+   {
+      final ResultsSchema schema = new ResultsSchema();
+      schema.add("project", ColumnType.TEXT);
+      schema.add("type", ColumnType.TEXT);
+      schema.add("templateFragment", ColumnType.TEXT);
+      schema.add("measure", ColumnType.TEXT);
+      schema.add("points", ColumnType.INTEGER);
+      schema.add("minimumSize", ColumnType.INTEGER);
+      schema.add("maximumSize", ColumnType.INTEGER);
+      schema.add("growthExponent", ColumnType.RATIO);
+      schema.add("growthExponentStandardError", ColumnType.RATIO);
+      schema.add("rSquare", ColumnType.RATIO);
+      return schema;
+   }
+
+   /**
+    * Searches the given files for templates and measures a series of synthetic models for each of them
+    */
+   public void run(final List<IFile> files, final IProgressMonitor monitor)
+   {
+      final EvaluationWorker worker = new EvaluationWorker(this.visualizer);
+      final Set<String> remainingTypes = new LinkedHashSet<>(TEMPLATE_TYPES);
+      try
+      {
+         monitor.beginTask("Scalability study", files.size());
+         for (final IFile file : files)
+         {
+            if (remainingTypes.isEmpty())
+               break;
+
+            try
+            {
+               final CandidateIndex candidateIndex = worker.indexFile(file, monitor);
+               for (final Candidate candidate : candidateIndex.getCandidates())
+               {
+                  if (remainingTypes.contains(candidate.getType()) && candidate.getNodeCount() >= MINIMUM_TEMPLATE_NODE_COUNT)
+                  {
+                     remainingTypes.remove(candidate.getType());
+                     measureSeries(candidate, candidateIndex.resolve(candidate), monitor);
+                  }
+               }
+            } catch (final RuntimeException e)
+            {
+               if (e.getCause() instanceof InterruptedException)
+                  throw e;
+               logException(e);
+            } finally
+            {
+               worker.unload();
+            }
+            monitor.worked(1);
+         }
+
+         if (!remainingTypes.isEmpty())
+         {
+            logger.warn("No template found for " + remainingTypes);
+         }
+      } finally
+      {
+         closeResults();
+      }
+   }
+
+   /**
+    * Measures the synthetic models that are generated from the given template and fits the growth curves
+    */
+   private void measureSeries(final Candidate template, final EObject templateElement, final IProgressMonitor monitor)
+   {
+      final ResultsSchema schemaOfVisualizer = this.visualizer.getSchema();
+      final Map<String, SimpleRegression> regressions = new LinkedHashMap<>();
+      MEASURES.forEach(measure -> regressions.put(measure, new SimpleRegression()));
+      int minimumSize = Integer.MAX_VALUE;
+      int maximumSize = 0;
+
+      for (final int copyCount : this.copies)
+      {
+         final Shape shape = new Shape(copyCount, this.edgeDensity, this.nestingDepth);
+         monitor.subTask(String.format("Scalability of %s %s", template.getType(), shape));
+         final EObject model = this.generator.generate(templateElement, shape, copyCount);
+         try
+         {
+            final SubtreeSize size = new SizeMetrics(eObject -> false).measure(model);
+            final Candidate candidate = new Candidate(template.getFile(), template.getUriFragment(), template.getType(), size.getNodeCount(),
+                  size.getEdgeCount(), size.getDepth());
+            final ResultRow row = this.visualizer.evaluate(model, candidate);
+            if (row == null)
+               continue;
+
+            minimumSize = Math.min(minimumSize, candidate.getSize());
+            maximumSize = Math.max(maximumSize, candidate.getSize());
+            for (final Map.Entry<String, SimpleRegression> entry : regressions.entrySet())
+            {
+               final int column = schemaOfVisualizer.getNames().indexOf(entry.getKey());
+               if (!row.isMissing(column) && row.getNumber(column) > 0)
+               {
+                  entry.getValue().addData(Math.log(candidate.getSize()), Math.log(row.getNumber(column)));
+               }
+            }
+
+            WorkspaceHelper.checkCanceledAndThrowInterruptedException(monitor);
+         } catch (final InterruptedException e)
+         {
+            throw new RuntimeException("User canceled", e);
+         } catch (final IOException e)
+         {
+            logException(e);
+         } finally
+         {
+            this.generator.release(model);
+            this.visualizer.clearCaches();
+         }
+      }
+
+      for (final Map.Entry<String, SimpleRegression> entry : regressions.entrySet())
+      {
+         final SimpleRegression regression = entry.getValue();
+         if (regression.getN() < 2)
+            continue;
+
+         final ResultRow row = new ResultRow(COLUMN_COUNT);
+         row.addText(String.format("[Project=%s,Path=%s]", template.getFile().getProject().getName(), template.getFile().getProjectRelativePath())
+               .replaceAll(ResultRow.CSV_SEP, "_"));
+         row.addText(template.getType()).addText(template.getUriFragment().replaceAll(ResultRow.CSV_SEP, "_")).addText(entry.getKey());
+         row.addInteger(regression.getN()).addInteger(minimumSize).addInteger(maximumSize);
+         appendRatio(row, regression.getSlope());
+         appendRatio(row, regression.getSlopeStdErr());
+         appendRatio(row, regression.getRSquare());
+         logger.info(String.format("Growth exponent of %s for %s %s: %.2f (R^2: %.3f, %d points)", entry.getKey(), template.getType(),
+               template.getUriFragment(), regression.getSlope(), regression.getRSquare(), regression.getN()));
+         try
+         {
+            this.resultsSink.append(row);
+         } catch (final IOException e)
+         {
+            logException(e);
+         }
+      }
+   }
+
+   /**
+    * Creates the configuration of the visualizer of the synthetic models, which writes to a subfolder of the root folder
+    * and uses the same repetition policy as the main evaluation
+    */
+   private static EvaluationConfiguration createConfigurationOfVisualizer(final EvaluationConfiguration configuration)
+   {
+      final EvaluationConfiguration configurationOfVisualizer = new EvaluationConfiguration();
+      configurationOfVisualizer.setRootFolder(new File(configuration.getRootFolder(), SUBFOLDER));
+      configurationOfVisualizer.setResultsFormat(configuration.getResultsFormat());
+      configurationOfVisualizer.setWarmupIterations(configuration.getWarmupIterations());
+      configurationOfVisualizer.setRepetitions(configuration.getRepetitions());
+      configurationOfVisualizer.setAdaptiveRepetitions(configuration.isAdaptiveRepetitions());
+      configurationOfVisualizer.setMaximumRepetitions(configuration.getMaximumRepetitions());
+      configurationOfVisualizer.setTargetRelativeWidth(configuration.getTargetRelativeWidth());
+      return configurationOfVisualizer;
+   }
+
+   private static void appendRatio(final ResultRow row, final double value)
+   {
+      if (Double.isNaN(value))
+         row.addMissing();
+      else
+         row.addRatio(value);
+   }
+
+   private void closeResults()
+   {
+      try
+      {
+         this.visualizer.closeResults();
+         this.resultsSink.close();
+      } catch (final IOException e)
+      {
+         logException(e);
+      }
+   }
+
+   private void logException(final Exception e)
+   {
+      logger.error("Problem: " + e.toString() + " - Stacktrace. " + ExceptionUtils.getStackTrace(e));
+   }
+}
@@ -0,0 +1,148 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+/**
+ * Measures node count, edge count and containment depth of a model element and all of its (transitive) contents in a
+ * single traversal.
+ * 
+ * The node count includes the element itself, the edge count comprises all values of all references of the counted
+ * nodes (as {@link org.moflon.core.utilities.eMoflonEMFUtil#getNodeCount(EObject)} and
+ * {@link org.moflon.core.utilities.eMoflonEMFUtil#getEdgeCount(EObject)} do), and the depth of an element without
+ * contents is 0.
+ * 
+ * The sizes of nested elements that match the given predicate (typically: evaluation candidates) are memoized. If a
+ * candidate contains further candidates, these are measured while measuring the outer candidate, and the sizes of the
+ * nested candidates are taken from the memo later on. The memo references model elements, so an instance should only
+ * be used while the measured resource is loaded.
+ */
+final class SizeMetrics
+{
+   /**
+    * Node count, edge count and depth of a subtree
+    */
+   static final class SubtreeSize
+   {
+      private int nodeCount;
+
+      private int edgeCount;
+
+      private int depth;
+
+      private SubtreeSize(final int nodeCount, final int edgeCount, final int depth)
+      {
+         this.nodeCount = nodeCount;
+         this.edgeCount = edgeCount;
+         this.depth = depth;
+      }
+
+      public int getNodeCount()
+      {
+         return nodeCount;
+      }
+
+      public int getEdgeCount()
+      {
+         return edgeCount;
+      }
+
+      public int getDepth()
+      {
+         return depth;
+      }
+
+      private void add(final SubtreeSize child)
+      {
+         this.nodeCount += child.nodeCount;
+         this.edgeCount += child.edgeCount;
+         this.depth = Math.max(this.depth, child.depth + 1);
+      }
+   }
+
+   /**
+    * Measurement of a subtree that is in progress
+    */
+   private static final class Frame
+   {
+      private final EObject element;
+
+      private final Iterator<EObject> children;
+
+      private final SubtreeSize size;
+
+      private Frame(final EObject element)
+      {
+         this.element = element;
+         this.children = element.eContents().iterator();
+         this.size = new SubtreeSize(1, countReferenceValues(element), 0);
+      }
+   }
+
+   private final Predicate<EObject> isMemoized;
+
+   private final Map<EObject, SubtreeSize> memo = new IdentityHashMap<>();
+
+   SizeMetrics(final Predicate<EObject> isMemoized)
+   {
+      this.isMemoized = isMemoized;
+   }
+
+   /**
+    * Returns the size of the subtree rooted at the given element
+    */
+   public SubtreeSize measure(final EObject root)
+   {
+      final SubtreeSize memoizedSize = memo.get(root);
+      if (memoizedSize != null)
+         return memoizedSize;
+
+      // Post-order traversal with an explicit stack because containment hierarchies may be deep
+      final Deque<Frame> stack = new ArrayDeque<>();
+      stack.push(new Frame(root));
+      while (true)
+      {
+         final Frame frame = stack.peek();
+         if (frame.children.hasNext())
+         {
+            final EObject child = frame.children.next();
+            final SubtreeSize sizeOfChild = memo.get(child);
+            if (sizeOfChild != null)
+               frame.size.add(sizeOfChild);
+            else
+               stack.push(new Frame(child));
+         } else
+         {
+            stack.pop();
+            if (isMemoized.test(frame.element))
+               memo.put(frame.element, frame.size);
+
+            if (stack.isEmpty())
+               return frame.size;
+            stack.peek().size.add(frame.size);
+         }
+      }
+   }
+
+   private static int countReferenceValues(final EObject element)
+   {
+      int count = 0;
+      for (final EReference reference : element.eClass().getEAllReferences())
+      {
+         final Object value = element.eGet(reference, false);
+         if (reference.isMany())
+            count += ((List<?>) value).size();
+         else if (value != null)
+            ++count;
+      }
+      return count;
+   }
+}
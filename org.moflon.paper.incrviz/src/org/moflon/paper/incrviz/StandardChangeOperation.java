@@ -0,0 +1,84 @@
+package org.moflon.paper.incrviz;
+
+import org.moflon.tgg.language.TGGRule;
+
+/**
+ * The change operations that are available out of the box
+ */
+enum StandardChangeOperation implements ChangeOperation
+{
+   ADD_OBJECT_VARIABLES("addObjectVariables")
+   {
+      @Override
+      public int apply(final TGGRule tggRule, final int changeSize, final EvaluationTGGRuleModifier modifier)
+      {
+         return modifier.performChangeAddObjectVariables(tggRule, changeSize).size();
+      }
+   },
+   REMOVE_OBJECT_VARIABLES("removeObjectVariables")
+   {
+      @Override
+      public int apply(final TGGRule tggRule, final int changeSize, final EvaluationTGGRuleModifier modifier)
+      {
+         return modifier.performRemoveObjectVariable(tggRule, changeSize).size();
+      }
+   },
+   RENAME_OBJECT_VARIABLES("renameObjectVariables")
+   {
+      @Override
+      public int apply(final TGGRule tggRule, final int changeSize, final EvaluationTGGRuleModifier modifier)
+      {
+         return modifier.performChangeObjectVariableNames(tggRule, changeSize).size();
+      }
+   },
+   ADD_LINK_VARIABLES("addLinkVariables")
+   {
+      @Override
+      public int apply(final TGGRule tggRule, final int changeSize, final EvaluationTGGRuleModifier modifier)
+      {
+         return modifier.performChangeAddLinkVariables(tggRule, changeSize).size();
+      }
+   },
+   REMOVE_LINK_VARIABLES("removeLinkVariables")
+   {
+      @Override
+      public int apply(final TGGRule tggRule, final int changeSize, final EvaluationTGGRuleModifier modifier)
+      {
+         return modifier.performRemoveLinkVariables(tggRule, changeSize).size();
+      }
+   },
+   CHANGE_BINDING_OPERATORS("changeBindingOperators")
+   {
+      @Override
+      public int apply(final TGGRule tggRule, final int changeSize, final EvaluationTGGRuleModifier modifier)
+      {
+         return modifier.performChangeBindingOperators(tggRule, changeSize).size();
+      }
+   };
+
+   private final String name;
+
+   private StandardChangeOperation(final String name)
+   {
+      this.name = name;
+   }
+
+   @Override
+   public String getName()
+   {
+      return name;
+   }
+
+   /**
+    * Returns the operation with the given name
+    */
+   public static StandardChangeOperation forName(final String name)
+   {
+      for (final StandardChangeOperation operation : values())
+      {
+         if (operation.name.equals(name))
+            return operation;
+      }
+      throw new IllegalArgumentException("Unknown change operation: " + name);
+   }
+}
@@ -0,0 +1,254 @@
+package org.moflon.paper.incrviz;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+import org.moflon.core.utilities.eMoflonEMFUtil;
+import org.moflon.tgg.language.TGGRule;
+
+/**
+ * Generates models of parameterized size and shape from a template, i.e., a TGG rule, an SDM activity or a precedence
+ * graph that has been found in the workspace.
+ * 
+ * The generated model is a copy of the template in which the contents at the given nesting depth (1: direct contents of
+ * the template) are replicated. Each replica is a copy of all of these contents together, so references between them
+ * (e.g., from link variables to object variables) stay within the replica. Afterwards, additional edges are inserted
+ * until there are (edge density x number of replicated elements) of them: link variables between random object
+ * variables in TGG rules and random values of many-valued cross references otherwise.
+ * 
+ * The generated models are stored in a transient resource and must be released after use.
+ */
+final class SyntheticModelGenerator
+{
+   private static final String SYNTHETIC_MODEL_URI = "incrviz-synthetic-model.xmi";
+
+   private static final String NAME_ATTRIBUTE = "name";
+
+   /**
+    * Size and shape of a generated model
+    */
+   static final class Shape
+   {
+      private final int copies;
+
+      private final double edgeDensity;
+
+      private final int nestingDepth;
+
+      Shape(final int copies, final double edgeDensity, final int nestingDepth)
+      {
+         if (copies < 1)
+            throw new IllegalArgumentException("At least one copy is required: " + copies);
+         if (nestingDepth < 1)
+            throw new IllegalArgumentException("Nesting depth must be positive: " + nestingDepth);
+         this.copies = copies;
+         this.edgeDensity = edgeDensity;
+         this.nestingDepth = nestingDepth;
+      }
+
+      /**
+       * Number of copies of the replicated contents, including the original contents
+       */
+      public int getCopies()
+      {
+         return copies;
+      }
+
+      /**
+       * Number of additional edges per replicated element
+       */
+      public double getEdgeDensity()
+      {
+         return edgeDensity;
+      }
+
+      /**
+       * Containment level at which the contents are replicated (1: direct contents of the template)
+       */
+      public int getNestingDepth()
+      {
+         return nestingDepth;
+      }
+
+      @Override
+      public String toString()
+      {
+         return String.format("[copies=%d,edgeDensity=%s,nestingDepth=%d]", copies, edgeDensity, nestingDepth);
+      }
+   }
+
+   private final ResourceSet resourceSet = eMoflonEMFUtil.createDefaultResourceSet();
+
+   /**
+    * Generates a model with the given shape from the given template. The template remains unchanged.
+    */
+   public EObject generate(final EObject template, final Shape shape, final long seed)
+   {
+      final EObject model = EcoreUtil.copy(template);
+      final Resource resource = this.resourceSet.createResource(URI.createURI(SYNTHETIC_MODEL_URI));
+      resource.getContents().add(model);
+
+      int replicatedElementCount = 0;
+      for (final EObject container : collectContainersAtDepth(model, shape.getNestingDepth() - 1))
+      {
+         replicatedElementCount += replicateContents(container, shape.getCopies());
+      }
+
+      final int edgeCount = (int) Math.round(shape.getEdgeDensity() * replicatedElementCount);
+      if (edgeCount > 0)
+      {
+         final Random random = new Random(seed);
+         if (model instanceof TGGRule)
+         {
+            new EvaluationTGGRuleModifier(random).performChangeAddLinkVariables((TGGRule) model, edgeCount);
+         } else
+         {
+            addCrossReferences(model, edgeCount, random);
+         }
+      }
+      return model;
+   }
+
+   /**
+    * Unloads the resource of the given generated model
+    */
+   public void release(final EObject model)
+   {
+      final Resource resource = model.eResource();
+      resource.unload();
+      this.resourceSet.getResources().remove(resource);
+   }
+
+   private static List<EObject> collectContainersAtDepth(final EObject root, final int depth)
+   {
+      List<EObject> containers = new ArrayList<>();
+      containers.add(root);
+      for (int level = 0; level < depth; ++level)
+      {
+         final List<EObject> contents = new ArrayList<>();
+         containers.forEach(container -> contents.addAll(container.eContents()));
+         containers = contents;
+      }
+      return containers;
+   }
+
+   /**
+    * Adds (copies - 1) replicas of the contents of the given container and returns the number of elements in all replicas
+    */
+   @SuppressWarnings("unchecked")
+   private static int replicateContents(final EObject container, final int copies)
+   {
+      final Map<EReference, List<EObject>> originalsByContainment = new LinkedHashMap<>();
+      final List<EObject> originals = new ArrayList<>();
+      for (final EReference containment : container.eClass().getEAllContainments())
+      {
+         if (isReplicable(containment))
+         {
+            final List<EObject> values = new ArrayList<>((Collection<EObject>) container.eGet(containment));
+            originalsByContainment.put(containment, values);
+            originals.addAll(values);
+         }
+      }
+
+      int replicatedElementCount = 0;
+      for (int copy = 1; copy < copies; ++copy)
+      {
+         final Copier copier = new Copier();
+         final Collection<EObject> replicas = copier.copyAll(originals);
+         copier.copyReferences();
+         for (final EObject replica : replicas)
+         {
+            rename(replica, copy);
+         }
+
+         for (final Map.Entry<EReference, List<EObject>> entry : originalsByContainment.entrySet())
+         {
+            final EList<EObject> values = (EList<EObject>) container.eGet(entry.getKey());
+            entry.getValue().forEach(original -> values.add(copier.get(original)));
+         }
+         replicatedElementCount += copier.size();
+      }
+      return replicatedElementCount;
+   }
+
+   /**
+    * Adds the given number of values to randomly chosen many-valued cross references between elements of the given model
+    */
+   @SuppressWarnings("unchecked")
+   private static void addCrossReferences(final EObject model, final int edgeCount, final Random random)
+   {
+      final List<EObject> elements = new ArrayList<>();
+      elements.add(model);
+      final TreeIterator<EObject> iterator = model.eAllContents();
+      iterator.forEachRemaining(elements::add);
+
+      int addedEdgeCount = 0;
+      for (int attempt = 0; attempt < 10 * edgeCount && addedEdgeCount < edgeCount; ++attempt)
+      {
+         final EObject source = elements.get(random.nextInt(elements.size()));
+         final List<EReference> references = new ArrayList<>();
+         for (final EReference reference : source.eClass().getEAllReferences())
+         {
+            if (isInsertable(reference))
+               references.add(reference);
+         }
+         if (references.isEmpty())
+            continue;
+
+         final EReference reference = references.get(random.nextInt(references.size()));
+         final EObject target = elements.get(random.nextInt(elements.size()));
+         final EList<EObject> values = (EList<EObject>) source.eGet(reference);
+         if (reference.getEReferenceType().isInstance(target) && !values.contains(target))
+         {
+            values.add(target);
+            ++addedEdgeCount;
+         }
+      }
+   }
+
+   private static boolean isReplicable(final EReference containment)
+   {
+      return containment.isMany() && containment.isChangeable() && !containment.isDerived() && !containment.isTransient();
+   }
+
+   /**
+    * Returns whether values may be added to the given reference without removing values from other references. This
+    * excludes references whose opposite is single-valued.
+    */
+   private static boolean isInsertable(final EReference reference)
+   {
+      final EReference opposite = reference.getEOpposite();
+      return reference.isMany() && reference.isChangeable() && !reference.isDerived() && !reference.isTransient() && !reference.isContainment()
+            && !reference.isContainer() && (opposite == null || opposite.isMany());
+   }
+
+   /**
+    * Appends the number of the copy to the name of the given element (if any) so that the names remain unique
+    */
+   private static void rename(final EObject element, final int copy)
+   {
+      final EStructuralFeature nameFeature = element.eClass().getEStructuralFeature(NAME_ATTRIBUTE);
+      if (nameFeature instanceof EAttribute && nameFeature.getEType().getInstanceClass() == String.class && nameFeature.isChangeable()
+            && !nameFeature.isMany())
+      {
+         final String name = (String) element.eGet(nameFeature);
+         if (name != null)
+            element.eSet(nameFeature, name + "_" + copy);
+      }
+   }
+}
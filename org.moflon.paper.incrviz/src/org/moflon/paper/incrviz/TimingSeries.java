@@ -0,0 +1,101 @@
+package org.moflon.paper.incrviz;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+
+/**
+ * Collects the {@link Measurement}s of repeated invocations of a diagram text provider
+ */
+final class TimingSeries
+{
+   private final DescriptiveStatistics providerDurationInMillis = new DescriptiveStatistics();
+
+   private final DescriptiveStatistics wallTimeInNanos = new DescriptiveStatistics();
+
+   private final DescriptiveStatistics cpuTimeInNanos = new DescriptiveStatistics();
+
+   private final DescriptiveStatistics allocatedBytes = new DescriptiveStatistics();
+
+   private final DescriptiveStatistics gcCount = new DescriptiveStatistics();
+
+   private final DescriptiveStatistics gcTimeInMillis = new DescriptiveStatistics();
+
+   public void add(final Measurement measurement)
+   {
+      providerDurationInMillis.addValue(measurement.getProviderDurationInMillis());
+      wallTimeInNanos.addValue(measurement.getWallTimeInNanos());
+      if (measurement.getCpuTimeInNanos() != Measurement.NOT_AVAILABLE)
+      {
+         cpuTimeInNanos.addValue(measurement.getCpuTimeInNanos());
+      }
+      if (measurement.getAllocatedBytes() != Measurement.NOT_AVAILABLE)
+      {
+         allocatedBytes.addValue(measurement.getAllocatedBytes());
+      }
+      if (measurement.getGcCount() != Measurement.NOT_AVAILABLE)
+      {
+         gcCount.addValue(measurement.getGcCount());
+         gcTimeInMillis.addValue(measurement.getGcTimeInMillis());
+      }
+   }
+
+   /**
+    * Discards all measurements, e.g., after warmup
+    */
+   public void clear()
+   {
+      providerDurationInMillis.clear();
+      wallTimeInNanos.clear();
+      cpuTimeInNanos.clear();
+      allocatedBytes.clear();
+      gcCount.clear();
+      gcTimeInMillis.clear();
+   }
+
+   /**
+    * Returns the durations as reported by the diagram text provider
+    */
+   public DescriptiveStatistics getProviderDurationInMillis()
+   {
+      return providerDurationInMillis;
+   }
+
+   /**
+    * Returns the elapsed times as measured by {@link TransformationTimer}
+    */
+   public DescriptiveStatistics getWallTimeInNanos()
+   {
+      return wallTimeInNanos;
+   }
+
+   /**
+    * Returns the CPU times of the measuring thread. Empty if CPU time measurement is not supported.
+    */
+   public DescriptiveStatistics getCpuTimeInNanos()
+   {
+      return cpuTimeInNanos;
+   }
+
+   /**
+    * Returns the bytes allocated by the measuring thread. Empty if allocation measurement is not supported.
+    */
+   public DescriptiveStatistics getAllocatedBytes()
+   {
+      return allocatedBytes;
+   }
+
+   /**
+    * Returns the numbers of garbage collections during the invocations. Empty if not supported.
+    */
+   public DescriptiveStatistics getGcCount()
+   {
+      return gcCount;
+   }
+
+   /**
+    * Returns the times spent in garbage collections during the invocations. Empty if not supported.
+    */
+   public DescriptiveStatistics getGcTimeInMillis()
+   {
+      return gcTimeInMillis;
+   }
+}
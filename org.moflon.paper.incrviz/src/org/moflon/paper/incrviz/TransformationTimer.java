@@ -0,0 +1,122 @@
+package org.moflon.paper.incrviz;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
+
+/**
+ * Measures invocations of {@link EMoflonDiagramTextProvider#modelToDot(EObject)}.
+ * 
+ * In addition to the duration that the provider reports (which has a resolution of milliseconds), the elapsed time is
+ * measured using {@link System#nanoTime()} and the CPU time of the current thread is measured using
+ * {@link ThreadMXBean#getCurrentThreadCpuTime()}. On HotSpot-based JVMs, the bytes allocated by the current thread are
+ * measured using {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}. The garbage collections that
+ * overlapped the invocation are taken from the {@link GarbageCollectorMXBean}s.
+ */
+final class TransformationTimer
+{
+   private final ThreadMXBean threadMXBean;
+
+   private final boolean isCpuTimeSupported;
+
+   private final com.sun.management.ThreadMXBean allocationMXBean;
+
+   private final List<GarbageCollectorMXBean> garbageCollectorMXBeans;
+
+   TransformationTimer()
+   {
+      this.threadMXBean = ManagementFactory.getThreadMXBean();
+      this.isCpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+      if (isCpuTimeSupported && !threadMXBean.isThreadCpuTimeEnabled())
+      {
+         threadMXBean.setThreadCpuTimeEnabled(true);
+      }
+      this.allocationMXBean = createAllocationMXBean(threadMXBean);
+      this.garbageCollectorMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
+   }
+
+   /**
+    * Invokes {@link EMoflonDiagramTextProvider#modelToDot(EObject)} and measures its duration
+    */
+   public Measurement measure(final EMoflonDiagramTextProvider diagramTextProvider, final EObject element)
+   {
+      final long gcCountBefore = getGcCount();
+      final long gcTimeBefore = getGcTimeInMillis();
+      final long allocatedBytesBefore = getCurrentThreadAllocatedBytes();
+      final long cpuTimeBefore = getCurrentThreadCpuTime();
+      final long wallTimeBefore = System.nanoTime();
+
+      final String dot = diagramTextProvider.modelToDot(element);
+
+      final long wallTimeAfter = System.nanoTime();
+      final long cpuTimeAfter = getCurrentThreadCpuTime();
+      final long allocatedBytesAfter = getCurrentThreadAllocatedBytes();
+      final long gcTimeAfter = getGcTimeInMillis();
+      final long gcCountAfter = getGcCount();
+
+      final long cpuTime = isCpuTimeSupported ? cpuTimeAfter - cpuTimeBefore : Measurement.NOT_AVAILABLE;
+      final long allocatedBytes = allocationMXBean != null ? allocatedBytesAfter - allocatedBytesBefore : Measurement.NOT_AVAILABLE;
+      final boolean isGcCountSupported = gcCountBefore != Measurement.NOT_AVAILABLE;
+      final long gcCount = isGcCountSupported ? gcCountAfter - gcCountBefore : Measurement.NOT_AVAILABLE;
+      final long gcTime = isGcCountSupported ? gcTimeAfter - gcTimeBefore : Measurement.NOT_AVAILABLE;
+      return new Measurement(dot, diagramTextProvider.getStatisticsOfLastRun().durationInMillis, wallTimeAfter - wallTimeBefore, cpuTime,
+            allocatedBytes, gcCount, gcTime);
+   }
+
+   private long getCurrentThreadCpuTime()
+   {
+      return isCpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : Measurement.NOT_AVAILABLE;
+   }
+
+   private long getCurrentThreadAllocatedBytes()
+   {
+      return allocationMXBean != null ? allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : Measurement.NOT_AVAILABLE;
+   }
+
+   /**
+    * Returns the number of garbage collections of all collectors that report it, or {@link Measurement#NOT_AVAILABLE}
+    */
+   private long getGcCount()
+   {
+      long count = Measurement.NOT_AVAILABLE;
+      for (final GarbageCollectorMXBean garbageCollectorMXBean : garbageCollectorMXBeans)
+      {
+         final long collectionCount = garbageCollectorMXBean.getCollectionCount();
+         if (collectionCount >= 0)
+         {
+            count = Math.max(count, 0) + collectionCount;
+         }
+      }
+      return count;
+   }
+
+   private long getGcTimeInMillis()
+   {
+      long time = 0;
+      for (final GarbageCollectorMXBean garbageCollectorMXBean : garbageCollectorMXBeans)
+      {
+         time += Math.max(garbageCollectorMXBean.getCollectionTime(), 0);
+      }
+      return time;
+   }
+
+   private static com.sun.management.ThreadMXBean createAllocationMXBean(final ThreadMXBean threadMXBean)
+   {
+      if (!(threadMXBean instanceof com.sun.management.ThreadMXBean))
+         return null;
+
+      final com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+      if (!allocationMXBean.isThreadAllocatedMemorySupported())
+         return null;
+
+      if (!allocationMXBean.isThreadAllocatedMemoryEnabled())
+      {
+         allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+      }
+      return allocationMXBean;
+   }
+}
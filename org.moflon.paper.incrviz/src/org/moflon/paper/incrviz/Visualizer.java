@@ -2,29 +2,32 @@ package org.moflon.paper.incrviz;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.util.Pair;
 import org.apache.log4j.Logger;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.change.util.ChangeRecorder;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.moflon.core.utilities.eMoflonEMFUtil;
 import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider;
-import org.moflon.ide.visualisation.dot.language.EMoflonDiagramTextProvider.Statistics;
 import org.moflon.ide.visualization.dot.sdm.SDMDiagramTextProvider;
 import org.moflon.ide.visualization.dot.sdmpatterns.StoryPatternDiagramTextProvider;
 import org.moflon.ide.visualization.dot.tgg.TGGRuleDiagramTextProvider;
@@ -32,29 +35,49 @@ import org.moflon.ide.visualization.dot.tgg.runtime.DotTGGRuntimeDiagramTextProv
 import org.moflon.ide.visualization.dot.tgg.runtimepatterns.DotTGGRuntimePatternsDiagramTextProvider;
 import org.moflon.tgg.language.TGGRule;
 
-import SDMLanguage.patterns.ObjectVariable;
-
 public class Visualizer
 {
    private static final String TRIPLE_MATCH_TYPE = "tripleMatch";
 
-   private static final String PRECEDENCE_GRAPH_TYPE = "pg";
+   static final String PRECEDENCE_GRAPH_TYPE = "pg";
 
    private static final String STORY_PATTERN_TYPE = "storyPattern";
 
-   private static final String TGG_RULE_TYPE = "tggRule";
+   static final String TGG_RULE_TYPE = "tggRule";
 
-   private static final String SDM_TYPE = "sdm";
+   static final String SDM_TYPE = "sdm";
 
    private final Logger logger = Logger.getLogger(Visualizer.class);
 
-   private static final Visualizer INSTANCE = new Visualizer();
+   private static final Visualizer INSTANCE = new Visualizer(EvaluationConfiguration.fromSystemProperties());
+
+   private static final String CSV_SEP = ResultRow.CSV_SEP;
+
+   static final String RESULTS_FILE_NAME = "incrviz_results.csv";
+
+   static final String BINARY_RESULTS_FILE_NAME = "incrviz_results.ivzc";
+
+   /**
+    * Receives only the rows that have been measured since the last {@link #startRun()}, e.g., for the regression gate
+    */
+   static final String RUN_RESULTS_FILE_NAME = "incrviz_run_results.csv";
+
+   private static final String WORKING_COPY_URI = "incrviz-working-copy.xmi";
+
+   private static final List<String> CHANGE_TYPES = Arrays.asList("_C1_add", "_C2_rename", "_C3_remove", "_C4_sequence");
 
-   private static final String CSV_SEP = ";";
+   /**
+    * Receive the measured rows, including the {@link #runResultsFile}
+    */
+   private final List<ResultsSink> resultsSinks;
 
-   private static final String VALUE_FOR_NON_AVAILABLE_CELLS = "NA";
+   /**
+    * Receive the rows that are taken over from a previous run, i.e., all results files except for the
+    * {@link #runResultsFile}
+    */
+   private final List<ResultsSink> resultsSinksOfCarriedRows;
 
-   private final File targetFile;
+   private final ResultsFile runResultsFile;
 
    private final File rootFolder;
 
@@ -68,452 +91,742 @@ public class Visualizer
 
    private final DotTGGRuntimePatternsDiagramTextProvider tripleMatchTextProvider = new DotTGGRuntimePatternsDiagramTextProvider();
 
+   private final ProviderDispatch providerDispatch = createProviderDispatch();
+
+   private final ContainmentReachability containmentReachability = new ContainmentReachability();
+
+   private final IdentifierProvider identifierProvider = new IdentifierProvider();
+
+   /**
+    * Holds the working copies of the TGG rules that are modified for RQ2. They are never saved.
+    */
+   private final ResourceSet workingCopyResourceSet = eMoflonEMFUtil.createDefaultResourceSet();
+
+   private final RepetitionPolicy repetitionPolicy;
+
    private int repetitionCountOfBatchTransformation;
 
    private int repetitionCountOfIncrementalTransformation;
 
-   private List<String> headerOfResultsFile;
+   private ResultsSchema schemaOfResultsFile;
 
    private int lengthOfHeaderWithRQ1;
 
-   private int visualizedItemCounter;
+   private final AtomicInteger visualizedItemCounter;
+
+   private final TransformationTimer timer = new TransformationTimer();
+
+   private final EvaluationStatistics liveStatistics = EvaluationStatistics.getInstance();
 
-   private Visualizer()
+   private final LatencySummary latencySummary;
+
+   private final ModelLoader modelLoader;
+
+   private ResultCache resultCache;
+
+   private final ChangeScenarioEngine changeScenarioEngine;
+
+   public Visualizer(final EvaluationConfiguration configuration)
    {
-      this.rootFolder = determineRootFolder();
+      this.rootFolder = configuration.getRootFolder();
 
       this.logger.info("Using root folder: " + this.rootFolder);
 
-      this.targetFile = new File(rootFolder, "incrviz_results.csv");
-      this.repetitionCountOfBatchTransformation = 5;
-      this.repetitionCountOfIncrementalTransformation = 5;
-      this.headerOfResultsFile = getHeaderOfResultsFile();
-      this.visualizedItemCounter = 0;
+      this.repetitionPolicy = new RepetitionPolicy(configuration);
+      this.repetitionCountOfBatchTransformation = repetitionPolicy.getMinimumRepetitions();
+      this.repetitionCountOfIncrementalTransformation = repetitionPolicy.getMinimumRepetitions();
+      this.schemaOfResultsFile = getSchemaOfResultsFile();
+      this.resultsSinksOfCarriedRows = createResultsSinks(configuration);
+      this.runResultsFile = new ResultsFile(new File(rootFolder, RUN_RESULTS_FILE_NAME), String.join(CSV_SEP, this.schemaOfResultsFile.getNames()));
+      this.resultsSinks = createResultsSinksOfMeasuredRows(configuration);
+      this.visualizedItemCounter = new AtomicInteger(0);
+      this.changeScenarioEngine = configuration.isSweep() ? createChangeScenarioEngine(configuration) : null;
+      this.latencySummary = new LatencySummary();
+      this.modelLoader = new ModelLoader(configuration.getLoadProfile(),
+            new ResultsFile(new File(rootFolder, ModelLoader.REPORT_FILE_NAME), String.join(CSV_SEP, ModelLoader.getSchema().getNames())),
+            configuration.isBinaryCache() ? new BinaryResourceCache(new File(rootFolder, BinaryResourceCache.FOLDER_NAME),
+                  configuration.getBinaryCacheMaximumSizeInMegabytes() * 1024L * 1024L) : null);
+   }
+
+   private List<ResultsSink> createResultsSinks(final EvaluationConfiguration configuration)
+   {
+      final List<ResultsSink> sinks = new ArrayList<>();
+      if (configuration.getResultsFormat().includesCsv())
+      {
+         sinks.add(new ResultsFile(new File(rootFolder, RESULTS_FILE_NAME), String.join(CSV_SEP, this.schemaOfResultsFile.getNames())));
+      }
+      if (configuration.getResultsFormat().includesBinary())
+      {
+         sinks.add(new ColumnarResultsFile(new File(rootFolder, BINARY_RESULTS_FILE_NAME), this.schemaOfResultsFile));
+      }
+      return sinks;
+   }
+
+   private List<ResultsSink> createResultsSinksOfMeasuredRows(final EvaluationConfiguration configuration)
+   {
+      final List<ResultsSink> sinks = new ArrayList<>(this.resultsSinksOfCarriedRows);
+      sinks.add(this.runResultsFile);
+      if (configuration.isPipeline())
+      {
+         return Collections.singletonList(new AsynchronousResultsSink(sinks));
+      }
+      return sinks;
+   }
+
+   private ChangeScenarioEngine createChangeScenarioEngine(final EvaluationConfiguration configuration)
+   {
+      final ResultsFile sweepResultsFile = new ResultsFile(new File(rootFolder, "incrviz_sweep.csv"),
+            String.join(CSV_SEP, ChangeScenarioEngine.getSchema().getNames()));
+      final ChangeScenarioEngine engine = new ChangeScenarioEngine(configuration.getSweepMaximumChangeSize(), configuration.getSweepSeedCount(),
+            sweepResultsFile);
+      configuration.getSweepOperations().forEach(name -> engine.register(StandardChangeOperation.forName(name)));
+      return engine;
+   }
+
+   /**
+    * Creates a visualizer that shares the results file and the counter of the given visualizer but owns its own diagram
+    * text providers
+    */
+   private Visualizer(final Visualizer prototype)
+   {
+      this.rootFolder = prototype.rootFolder;
+      this.repetitionPolicy = prototype.repetitionPolicy;
+      this.repetitionCountOfBatchTransformation = prototype.repetitionCountOfBatchTransformation;
+      this.repetitionCountOfIncrementalTransformation = prototype.repetitionCountOfIncrementalTransformation;
+      this.schemaOfResultsFile = prototype.schemaOfResultsFile;
+      this.lengthOfHeaderWithRQ1 = prototype.lengthOfHeaderWithRQ1;
+      this.resultsSinks = prototype.resultsSinks;
+      this.resultsSinksOfCarriedRows = prototype.resultsSinksOfCarriedRows;
+      this.runResultsFile = prototype.runResultsFile;
+      this.visualizedItemCounter = prototype.visualizedItemCounter;
+      this.resultCache = prototype.resultCache;
+      this.changeScenarioEngine = prototype.changeScenarioEngine != null ? prototype.changeScenarioEngine.createWorker() : null;
+      this.latencySummary = prototype.latencySummary;
+      this.modelLoader = prototype.modelLoader;
    }
 
-   public void visualize(final EObject element, final IResource resource) throws IOException
+   /**
+    * Returns a new visualizer for a worker thread.
+    * 
+    * The diagram text providers are not thread-safe. Therefore, each worker needs its own set of providers. All workers
+    * write to the same results file.
+    */
+   public Visualizer createWorker()
+   {
+      return new Visualizer(this);
+   }
+
+   public void visualize(final EObject element, final Candidate candidate) throws IOException
+   {
+      evaluate(element, candidate);
+   }
+
+   /**
+    * Measures the given element, appends the results row to the results and returns it (or null if the element cannot be
+    * handled)
+    */
+   ResultRow evaluate(final EObject element, final Candidate candidate) throws IOException
+   {
+      this.liveStatistics.startCandidate(candidate);
+      try
+      {
+         return measure(element, candidate);
+      } finally
+      {
+         this.liveStatistics.finishCandidate();
+      }
+   }
+
+   private ResultRow measure(final EObject element, final Candidate candidate) throws IOException
    {
-      createRootFolderIfNecessary();
-      addTitlesIfNecessary();
       final EMoflonDiagramTextProvider diagramTextProvider = determineDiagramTextProvider(element);
 
       if (diagramTextProvider == null)
       {
          // Ignore elements that we cannot handle
-         return;
+         return null;
       }
 
-      ++this.visualizedItemCounter;
+      final int visualizedItemIndex = this.visualizedItemCounter.incrementAndGet();
 
-      final String type = determineTypeOfModel(element);
+      final String type = candidate.getType();
+      final IResource resource = candidate.getFile();
 
       /*
        * *** General statistics
        */
       final String objectId = calculateNormalizedIdentifier(element);
-      final int objectNodeCount = eMoflonEMFUtil.getNodeCount(element);
-      final int objectEdgeCount = eMoflonEMFUtil.getEdgeCount(element);
-      final int objectSize = objectEdgeCount + objectNodeCount;
+      final int objectNodeCount = candidate.getNodeCount();
+      final int objectEdgeCount = candidate.getEdgeCount();
+      final int objectSize = candidate.getSize();
       final String formattedDate = new SimpleDateFormat("yyyy-MM-dd+HH-mm-ss").format(new Date());
-      final List<Object> columns = new ArrayList<>();
+      final ResultRow row = new ResultRow(getLengthOfHeaderForRQ1andRQ2());
       final String pathToResource = String.format("[Project=%s,Path=%s]", resource.getProject().getName(), resource.getProjectRelativePath())
             .replaceAll(CSV_SEP, "_");
-      columns.addAll(Arrays.asList(formattedDate, pathToResource, type, objectId, objectNodeCount, objectEdgeCount, objectSize));
+      row.addText(formattedDate).addText(pathToResource).addText(type).addText(objectId);
+      row.addInteger(objectNodeCount).addInteger(objectEdgeCount).addInteger(objectSize).addInteger(candidate.getContainmentDepth());
 
       /*
        * *** RQ1: Initial batch transformation
        */
-      final DescriptiveStatistics initialBatchExecutionStatistics = new DescriptiveStatistics();
+      final TimingSeries initialBatchExecutionStatistics = new TimingSeries();
 
-      Statistics statistics = null;
-      for (int i = 0; i < this.repetitionCountOfBatchTransformation; ++i)
+      for (int i = 0; i < this.repetitionPolicy.getWarmupIterations(); ++i)
+      {
+         diagramTextProvider.clearCache();
+         diagramTextProvider.modelToDot(element); // Warmup
+      }
+
+      while (!this.repetitionPolicy.isComplete(Arrays.asList(initialBatchExecutionStatistics.getWallTimeInNanos())))
       {
          diagramTextProvider.clearCache();
-         diagramTextProvider.modelToDot(element); // Batch transformation
-         statistics = diagramTextProvider.getStatisticsOfLastRun();
-         initialBatchExecutionStatistics.addValue(statistics.durationInMillis);
+         initialBatchExecutionStatistics.add(this.timer.measure(diagramTextProvider, element)); // Batch transformation
       }
 
       // Add columns for initial batch execution
-      final String meanBatchExecutionTime = formatTimeInMillis(initialBatchExecutionStatistics.getMean());
-      final String medianBatchExecutionTime = formatTimeInMillis(median(initialBatchExecutionStatistics));
-      appendValuesOfStatisticsToColumns(columns, initialBatchExecutionStatistics);
-      columns.add(meanBatchExecutionTime);
-      columns.add(medianBatchExecutionTime);
+      final double meanBatchExecutionTime = initialBatchExecutionStatistics.getProviderDurationInMillis().getMean();
+      final double medianBatchExecutionTime = median(initialBatchExecutionStatistics.getProviderDurationInMillis());
+      appendValuesOfStatisticsToColumns(row, initialBatchExecutionStatistics.getProviderDurationInMillis());
+      row.addMillis(meanBatchExecutionTime);
+      row.addMillis(medianBatchExecutionTime);
+
+      // Add columns for initial batch execution as measured by the harness
+      final double[] wallTimes = initialBatchExecutionStatistics.getWallTimeInNanos().getValues();
+      for (int i = 0; i < this.repetitionCountOfBatchTransformation; ++i)
+      {
+         row.addInteger((long) wallTimes[i]);
+      }
+      appendRounded(row, initialBatchExecutionStatistics.getWallTimeInNanos().getMean());
+      appendRounded(row, median(initialBatchExecutionStatistics.getWallTimeInNanos()));
+      appendRounded(row, initialBatchExecutionStatistics.getCpuTimeInNanos().getMean());
+      appendRounded(row, median(initialBatchExecutionStatistics.getCpuTimeInNanos()));
+      appendMemoryStatistics(row, initialBatchExecutionStatistics);
+      row.addInteger(initialBatchExecutionStatistics.getWallTimeInNanos().getN());
+      recordLatencies(type, EvaluationStatistics.BATCH, objectSize, wallTimes);
 
       /*
        * *** RQ2: Synchronize changes
        */
       if (element instanceof TGGRule)
       {
-         this.performModificationsForRQ2(diagramTextProvider, columns, (TGGRule) element);
+         this.performModificationsForRQ2(diagramTextProvider, row, (TGGRule) element, objectSize);
+         if (this.changeScenarioEngine != null)
+         {
+            this.runChangeScenarios(diagramTextProvider, (TGGRule) element, pathToResource, objectId, objectSize);
+         }
 
-         if (columns.size() != getLengthOfHeaderForRQ1andRQ2())
-            throw new IllegalStateException("Invalid column count: " + columns.size() + ". Header (for RQ1+RQ2): " + headerOfResultsFile.size());
+         if (row.size() != getLengthOfHeaderForRQ1andRQ2())
+            throw new IllegalStateException("Invalid column count: " + row.size() + ". Header (for RQ1+RQ2): " + schemaOfResultsFile.size());
       } else
       {
-         if (columns.size() != getLengthOfHeaderForRQ1Only())
-            throw new IllegalStateException("Invalid column count: " + columns.size() + ". Header (for RQ1): " + lengthOfHeaderWithRQ1);
-         padColumnsToLengthOfFullHeader(columns);
+         if (row.size() != getLengthOfHeaderForRQ1Only())
+            throw new IllegalStateException("Invalid column count: " + row.size() + ". Header (for RQ1): " + lengthOfHeaderWithRQ1);
+         padColumnsToLengthOfFullHeader(row);
       }
 
-      logger.info("#" + String.format("%05d", this.visualizedItemCounter) + " " + type + " : " + pathToResource + "::" + objectId + " - E: " + objectEdgeCount
-            + " - V: " + objectNodeCount + " - median t: " + medianBatchExecutionTime + " - mean t: " + meanBatchExecutionTime);
+      logger.info("#" + String.format("%05d", visualizedItemIndex) + " " + type + " : " + pathToResource + "::" + objectId + " - E: " + objectEdgeCount
+            + " - V: " + objectNodeCount + " - median t: " + formatTimeInMillis(medianBatchExecutionTime) + " - mean t: " + formatTimeInMillis(meanBatchExecutionTime));
+
+      appendToResults(this.resultsSinks, row);
+      if (this.resultCache != null)
+      {
+         this.resultCache.recordResult(candidate, row.toCsv());
+      }
+      return row;
+   }
 
-      FileUtils.writeLines(this.targetFile, Arrays.asList(joinWithCsvSeparator(columns)), true);
+   /**
+    * @throws UncheckedIOException
+    *            if a row cannot be written, which stops the evaluation because all further rows would be lost as well
+    */
+   private static void appendToResults(final List<ResultsSink> resultsSinks, final ResultRow row)
+   {
+      try
+      {
+         for (final ResultsSink resultsSink : resultsSinks)
+         {
+            resultsSink.append(row);
+         }
+      } catch (final IOException e)
+      {
+         throw new UncheckedIOException(e);
+      }
    }
 
-   private void padColumnsToLengthOfFullHeader(List<Object> columns)
+   private void padColumnsToLengthOfFullHeader(ResultRow row)
    {
       final int differenceInLength = getLengthOfHeaderForRQ1andRQ2() - getLengthOfHeaderForRQ1Only();
       for (int i = 0; i < differenceInLength; ++i)
       {
-         columns.add(VALUE_FOR_NON_AVAILABLE_CELLS);
+         row.addMissing();
       }
-      assert columns.size() == getLengthOfHeaderForRQ1andRQ2();
+      assert row.size() == getLengthOfHeaderForRQ1andRQ2();
    }
 
-   private void performModificationsForRQ2(final EMoflonDiagramTextProvider diagramTextProvider, final List<Object> columns, final TGGRule originalRule)
+   private void performModificationsForRQ2(final EMoflonDiagramTextProvider diagramTextProvider, final ResultRow row, final TGGRule originalRule,
+         final int objectSize)
    {
-      final DescriptiveStatistics addedObjectVariablesIncrementalStatistics = new DescriptiveStatistics();
-      final DescriptiveStatistics addedObjectVariablesBatchStatistics = new DescriptiveStatistics();
-      final DescriptiveStatistics renamedObjectVariablesIncrementalStatistics = new DescriptiveStatistics();
-      final DescriptiveStatistics renamedObjectVariablesBatchStatistics = new DescriptiveStatistics();
-      final DescriptiveStatistics removedObjectVariablesIncrementalStatistics = new DescriptiveStatistics();
-      final DescriptiveStatistics removedObjectVariablesBatchStatistics = new DescriptiveStatistics();
-      final DescriptiveStatistics changeSequenceIncrementalStatistics = new DescriptiveStatistics();
-      final DescriptiveStatistics changeSequenceBatchStatistics = new DescriptiveStatistics();
-
-      for (int i = 0; i < this.repetitionCountOfIncrementalTransformation; ++i)
+      final TimingSeries addedObjectVariablesIncrementalStatistics = new TimingSeries();
+      final TimingSeries addedObjectVariablesBatchStatistics = new TimingSeries();
+      final TimingSeries renamedObjectVariablesIncrementalStatistics = new TimingSeries();
+      final TimingSeries renamedObjectVariablesBatchStatistics = new TimingSeries();
+      final TimingSeries removedObjectVariablesIncrementalStatistics = new TimingSeries();
+      final TimingSeries removedObjectVariablesBatchStatistics = new TimingSeries();
+      final TimingSeries changeSequenceIncrementalStatistics = new TimingSeries();
+      final TimingSeries changeSequenceBatchStatistics = new TimingSeries();
+      final List<TimingSeries> allStatistics = Arrays.asList(addedObjectVariablesIncrementalStatistics, addedObjectVariablesBatchStatistics,
+            renamedObjectVariablesIncrementalStatistics, renamedObjectVariablesBatchStatistics, removedObjectVariablesIncrementalStatistics,
+            removedObjectVariablesBatchStatistics, changeSequenceIncrementalStatistics, changeSequenceBatchStatistics);
+      final List<DescriptiveStatistics> allWallTimes = allStatistics.stream().map(TimingSeries::getWallTimeInNanos).collect(Collectors.toList());
+      final TimingSeries undoOfSeparateChangesStatistics = new TimingSeries();
+      final TimingSeries undoOfChangeSequenceStatistics = new TimingSeries();
+      int undoMismatchCount = 0;
+
+      final TGGRule tggRule = createWorkingCopy(originalRule);
+      try
       {
-         final EvaluationTGGRuleModifier evaluationTGGRuleModifier = new EvaluationTGGRuleModifier(new Random(1));
-         final TGGRule tggRule = createDeepCopy(originalRule);
-
-         diagramTextProvider.modelToDot(tggRule);
-
+         int iteration = 0;
+         while (iteration < this.repetitionPolicy.getWarmupIterations() || !this.repetitionPolicy.isComplete(allWallTimes))
          {
-            // Change (i)
-            List<ObjectVariable> addedObjectVariables = evaluationTGGRuleModifier.performChangeAddObjectVariables(tggRule, 3);
-            try
-            {
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change1-srcBefore.xmi");
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change1-trgBefore.xmi");
-            } catch (Exception e)
-            {
-               logger.error("[Pre-Change 1] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
-            }
-            diagramTextProvider.modelToDot(tggRule); // Incremental
-            try
-            {
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change1-srcAfter.xmi");
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change1-trgAfter.xmi");
-            } catch (Exception e)
-            {
-               logger.error("[Post-Change 1] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
-            }
-            final double change1TimeIncremental = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
+            // Each change block is rolled back, so each repetition starts from the original state of the rule. The provider
+            // synchronizes it from scratch.
+            final EvaluationTGGRuleModifier evaluationTGGRuleModifier = new EvaluationTGGRuleModifier(new Random(1));
+
             diagramTextProvider.clearCache();
-            diagramTextProvider.modelToDot(tggRule); // Batch
-            final double change1TimeBatch = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
-            addedObjectVariablesIncrementalStatistics.addValue(change1TimeIncremental);
-            addedObjectVariablesBatchStatistics.addValue(change1TimeBatch);
-
-            // Change (ii)
-            ObjectVariable renamedObjectVariable = evaluationTGGRuleModifier.performChangeObjectVariableNameChange(tggRule);
-            try
-            {
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change2-srcBefore.xmi");
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change2-trgBefore.xmi");
-            } catch (Exception e)
-            {
-               logger.error("[Pre-Change 2] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
-            }
-            diagramTextProvider.modelToDot(tggRule); // Incremental
-            try
-            {
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change2-srcAfter.xmi");
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change2-trgAfter.xmi");
-            } catch (Exception e)
+            final String dotBeforeChanges = diagramTextProvider.modelToDot(tggRule);
+
             {
-               logger.error("[Post-Change 2] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               final ChangeRecorder separateChangesRecorder = new ChangeRecorder(tggRule);
+
+               // Change (i)
+               evaluationTGGRuleModifier.performChangeAddObjectVariables(tggRule, 3);
+               try
+               {
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change1-srcBefore.xmi");
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change1-trgBefore.xmi");
+               } catch (Exception e)
+               {
+                  logger.error("[Pre-Change 1] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               }
+               final Measurement change1Incremental = this.timer.measure(diagramTextProvider, tggRule); // Incremental
+               try
+               {
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change1-srcAfter.xmi");
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change1-trgAfter.xmi");
+               } catch (Exception e)
+               {
+                  logger.error("[Post-Change 1] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               }
+               diagramTextProvider.clearCache();
+               final Measurement change1Batch = this.timer.measure(diagramTextProvider, tggRule); // Batch
+               addedObjectVariablesIncrementalStatistics.add(change1Incremental);
+               addedObjectVariablesBatchStatistics.add(change1Batch);
+
+               // Change (ii)
+               evaluationTGGRuleModifier.performChangeObjectVariableNameChange(tggRule);
+               try
+               {
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change2-srcBefore.xmi");
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change2-trgBefore.xmi");
+               } catch (Exception e)
+               {
+                  logger.error("[Pre-Change 2] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               }
+               final Measurement change2Incremental = this.timer.measure(diagramTextProvider, tggRule); // Incremental
+               try
+               {
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change2-srcAfter.xmi");
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change2-trgAfter.xmi");
+               } catch (Exception e)
+               {
+                  logger.error("[Post-Change 2] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               }
+               diagramTextProvider.clearCache();
+               final Measurement change2Batch = this.timer.measure(diagramTextProvider, tggRule); // Batch
+               renamedObjectVariablesIncrementalStatistics.add(change2Incremental);
+               renamedObjectVariablesBatchStatistics.add(change2Batch);
+
+               // Change (iii)
+               evaluationTGGRuleModifier.performRemoveObjectVariable(tggRule, 2);
+               try
+               {
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change3-srcBefore.xmi");
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change3-trgBefore.xmi");
+               } catch (Exception e)
+               {
+                  logger.error("[Pre-Change 3] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               }
+               final Measurement change3Incremental = this.timer.measure(diagramTextProvider, tggRule); // Incremental
+               try
+               {
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change3-srcAfter.xmi");
+                  // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change3-trgAfter.xmi");
+               } catch (Exception e)
+               {
+                  logger.error("[Post-Change 3] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               }
+               diagramTextProvider.clearCache();
+               final Measurement change3Batch = this.timer.measure(diagramTextProvider, tggRule); // Batch
+               removedObjectVariablesIncrementalStatistics.add(change3Incremental);
+               removedObjectVariablesBatchStatistics.add(change3Batch);
+
+               if (!undoModifications(diagramTextProvider, tggRule, separateChangesRecorder, dotBeforeChanges, undoOfSeparateChangesStatistics))
+                  ++undoMismatchCount;
             }
-            final double change2TimeIncremental = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
-            diagramTextProvider.clearCache();
-            diagramTextProvider.modelToDot(tggRule); // Batch
-            final double change2TimeBatch = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
-            renamedObjectVariablesIncrementalStatistics.addValue(change2TimeIncremental);
-            renamedObjectVariablesBatchStatistics.addValue(change2TimeBatch);
-
-            // Change (iii)
-            List<ObjectVariable> removedObjectVariables = evaluationTGGRuleModifier.performRemoveObjectVariable(tggRule, 2);
-            try
-            {
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change3-srcBefore.xmi");
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change3-trgBefore.xmi");
-            } catch (Exception e)
+
             {
-               logger.error("[Pre-Change 3] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               final ChangeRecorder changeSequenceRecorder = new ChangeRecorder(tggRule);
+
+               // Changes (i)+(ii)+(iii) combined
+               evaluationTGGRuleModifier.performChangeAddObjectVariables(tggRule, 3);
+               evaluationTGGRuleModifier.performChangeObjectVariableNameChange(tggRule);
+               evaluationTGGRuleModifier.performRemoveObjectVariable(tggRule, 2);
+               final Measurement changes123Incremental = this.timer.measure(diagramTextProvider, tggRule); // Incremental
+               diagramTextProvider.clearCache();
+               final Measurement changes123Batch = this.timer.measure(diagramTextProvider, tggRule); // Batch
+               changeSequenceIncrementalStatistics.add(changes123Incremental);
+               changeSequenceBatchStatistics.add(changes123Batch);
+
+               if (!undoModifications(diagramTextProvider, tggRule, changeSequenceRecorder, dotBeforeChanges, undoOfChangeSequenceStatistics))
+                  ++undoMismatchCount;
             }
-            diagramTextProvider.modelToDot(tggRule); // Incremental
-            try
-            {
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveSrc("C:\\tmp\\change3-srcAfter.xmi");
-               // diagramTextProvider.getSynchronizationHelperForObject(tggRule).saveTrg("C:\\tmp\\change3-trgAfter.xmi");
-            } catch (Exception e)
+
+            ++iteration;
+            if (iteration == this.repetitionPolicy.getWarmupIterations())
             {
-               logger.error("[Post-Change 3] Problem while saving model " + eMoflonEMFUtil.getIdentifier(tggRule), e);
+               // Discard the warmup iterations
+               allStatistics.forEach(TimingSeries::clear);
+               undoOfSeparateChangesStatistics.clear();
+               undoOfChangeSequenceStatistics.clear();
+               undoMismatchCount = 0;
             }
-            final double change3TimeIncremental = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
-            diagramTextProvider.clearCache();
-            diagramTextProvider.modelToDot(tggRule); // Batch
-            final double change3TimeBatch = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
-            removedObjectVariablesIncrementalStatistics.addValue(change3TimeIncremental);
-            removedObjectVariablesBatchStatistics.addValue(change3TimeBatch);
-
-            undoModifications(tggRule, diagramTextProvider, evaluationTGGRuleModifier, tggRule, addedObjectVariables, renamedObjectVariable,
-                  removedObjectVariables);
-         }
-
-         {
-            // Changes (i)+(ii)+(iii) combined
-            final List<ObjectVariable> addedObjectVariables = evaluationTGGRuleModifier.performChangeAddObjectVariables(tggRule, 3);
-            final ObjectVariable renamedObjectVariable = evaluationTGGRuleModifier.performChangeObjectVariableNameChange(tggRule);
-            final List<ObjectVariable> removedObjectVariables = evaluationTGGRuleModifier.performRemoveObjectVariable(tggRule, 2);
-            diagramTextProvider.modelToDot(tggRule); // Incremental
-            final double changes123TimeIncremental = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
-            diagramTextProvider.clearCache();
-            diagramTextProvider.modelToDot(tggRule); // Batch
-            final double changes123TimeBatch = diagramTextProvider.getStatisticsOfLastRun().durationInMillis;
-            changeSequenceIncrementalStatistics.addValue(changes123TimeIncremental);
-            changeSequenceBatchStatistics.addValue(changes123TimeBatch);
-
-            undoModifications(tggRule, diagramTextProvider, evaluationTGGRuleModifier, tggRule, addedObjectVariables, renamedObjectVariable,
-                  removedObjectVariables);
-         }
-      } // repetitions of RQ2 tests
+         } // repetitions of RQ2 tests
+      } finally
+      {
+         releaseWorkingCopy(tggRule);
+      }
 
-      for (final Pair<DescriptiveStatistics, DescriptiveStatistics> statisticsPair : Arrays.asList(
+      final List<Pair<TimingSeries, TimingSeries>> statisticsPairs = Arrays.asList(
             Pair.create(addedObjectVariablesIncrementalStatistics, addedObjectVariablesBatchStatistics),
             Pair.create(renamedObjectVariablesIncrementalStatistics, renamedObjectVariablesBatchStatistics),
             Pair.create(removedObjectVariablesIncrementalStatistics, removedObjectVariablesBatchStatistics),
-            Pair.create(changeSequenceIncrementalStatistics, changeSequenceBatchStatistics)))
+            Pair.create(changeSequenceIncrementalStatistics, changeSequenceBatchStatistics));
+      for (final Pair<TimingSeries, TimingSeries> statisticsPair : statisticsPairs)
       {
-         final DescriptiveStatistics statisticsForIncrementalRun = statisticsPair.getFirst();
-         final DescriptiveStatistics statisticsForBatchRun = statisticsPair.getSecond();
+         final DescriptiveStatistics statisticsForIncrementalRun = statisticsPair.getFirst().getProviderDurationInMillis();
+         final DescriptiveStatistics statisticsForBatchRun = statisticsPair.getSecond().getProviderDurationInMillis();
 
          final double statisticsForIncrementalRunMedian = median(statisticsForIncrementalRun);
          final double statisticsForBatchRunMedian = median(statisticsForBatchRun);
          final double statisticsForIncrementalRunMean = statisticsForIncrementalRun.getMean();
          final double statisticsForBatchRunMean = statisticsForBatchRun.getMean();
 
-         appendValuesOfStatisticsToColumns(columns, statisticsForIncrementalRun);
-         appendValuesOfStatisticsToColumns(columns, statisticsForBatchRun);
-         columns.add(formatTimeInMillis(statisticsForIncrementalRunMean));
-         columns.add(formatTimeInMillis(statisticsForIncrementalRunMedian));
-         columns.add(formatTimeInMillis(statisticsForBatchRunMean));
-         columns.add(formatTimeInMillis(statisticsForBatchRunMedian));
-         columns.add(statisticsForIncrementalRunMean / statisticsForBatchRunMean);
-         columns.add(statisticsForIncrementalRunMedian / statisticsForBatchRunMedian);
+         appendValuesOfStatisticsToColumns(row, statisticsForIncrementalRun);
+         appendValuesOfStatisticsToColumns(row, statisticsForBatchRun);
+         row.addMillis(statisticsForIncrementalRunMean);
+         row.addMillis(statisticsForIncrementalRunMedian);
+         row.addMillis(statisticsForBatchRunMean);
+         row.addMillis(statisticsForBatchRunMedian);
+         row.addRatio(statisticsForIncrementalRunMean / statisticsForBatchRunMean);
+         row.addRatio(statisticsForIncrementalRunMedian / statisticsForBatchRunMedian);
       }
 
       final double sumOfRuntimeForIndividualChangesIncrementalMean = Arrays
             .asList(addedObjectVariablesIncrementalStatistics, renamedObjectVariablesIncrementalStatistics, removedObjectVariablesIncrementalStatistics)
-            .stream().map(DescriptiveStatistics::getMean).reduce((a, b) -> a + b).get();
+            .stream().map(TimingSeries::getProviderDurationInMillis).map(DescriptiveStatistics::getMean).reduce((a, b) -> a + b).get();
 
       final double sumOfRuntimeForIndividualChangesIncrementalMedian = Arrays
             .asList(addedObjectVariablesIncrementalStatistics, renamedObjectVariablesIncrementalStatistics, removedObjectVariablesIncrementalStatistics)
-            .stream().map(Visualizer::median).reduce((a, b) -> a + b).get();
+            .stream().map(TimingSeries::getProviderDurationInMillis).map(Visualizer::median).reduce((a, b) -> a + b).get();
+
+      final DescriptiveStatistics changeSequenceIncrementalDurations = changeSequenceIncrementalStatistics.getProviderDurationInMillis();
+      row.addMillis(sumOfRuntimeForIndividualChangesIncrementalMean);
+      row.addMillis(sumOfRuntimeForIndividualChangesIncrementalMedian);
+      row.addRatio(changeSequenceIncrementalDurations.getMean() / sumOfRuntimeForIndividualChangesIncrementalMean);
+      row.addRatio(median(changeSequenceIncrementalDurations) / sumOfRuntimeForIndividualChangesIncrementalMedian);
+
+      // Times as measured by the harness
+      for (final Pair<TimingSeries, TimingSeries> statisticsPair : statisticsPairs)
+      {
+         final DescriptiveStatistics wallTimesForIncrementalRun = statisticsPair.getFirst().getWallTimeInNanos();
+         final DescriptiveStatistics wallTimesForBatchRun = statisticsPair.getSecond().getWallTimeInNanos();
+
+         final double[] incrementalWallTimes = wallTimesForIncrementalRun.getValues();
+         for (int i = 0; i < this.repetitionCountOfIncrementalTransformation; ++i)
+         {
+            row.addInteger((long) incrementalWallTimes[i]);
+         }
+         appendRounded(row, wallTimesForIncrementalRun.getMean());
+         appendRounded(row, median(wallTimesForIncrementalRun));
+         appendRounded(row, wallTimesForBatchRun.getMean());
+         appendRounded(row, median(wallTimesForBatchRun));
+         appendRounded(row, median(statisticsPair.getFirst().getCpuTimeInNanos()));
+         appendRounded(row, median(statisticsPair.getSecond().getCpuTimeInNanos()));
+         row.addRatio(wallTimesForIncrementalRun.getMean() / wallTimesForBatchRun.getMean());
+         row.addRatio(median(wallTimesForIncrementalRun) / median(wallTimesForBatchRun));
+         appendMemoryStatistics(row, statisticsPair.getFirst());
+         appendMemoryStatistics(row, statisticsPair.getSecond());
+         recordLatencies(TGG_RULE_TYPE, EvaluationStatistics.INCREMENTAL, objectSize, wallTimesForIncrementalRun.getValues());
+         recordLatencies(TGG_RULE_TYPE, EvaluationStatistics.BATCH_AFTER_CHANGE, objectSize, wallTimesForBatchRun.getValues());
+      }
+
+      // Undo of the changes
+      for (final TimingSeries undoStatistics : Arrays.asList(undoOfSeparateChangesStatistics, undoOfChangeSequenceStatistics))
+      {
+         row.addMillis(undoStatistics.getProviderDurationInMillis().getMean());
+         row.addMillis(median(undoStatistics.getProviderDurationInMillis()));
+         appendRounded(row, undoStatistics.getWallTimeInNanos().getMean());
+         appendRounded(row, median(undoStatistics.getWallTimeInNanos()));
+      }
+      row.addInteger(undoMismatchCount);
+
+      row.addInteger(changeSequenceIncrementalStatistics.getWallTimeInNanos().getN());
+   }
 
-      columns.add(formatTimeInMillis(sumOfRuntimeForIndividualChangesIncrementalMean));
-      columns.add(formatTimeInMillis(sumOfRuntimeForIndividualChangesIncrementalMedian));
-      columns.add(changeSequenceIncrementalStatistics.getMean() / sumOfRuntimeForIndividualChangesIncrementalMean);
-      columns.add(median(changeSequenceIncrementalStatistics) / sumOfRuntimeForIndividualChangesIncrementalMedian);
+   /**
+    * Measures the sweep of change scenarios on a working copy of the given rule
+    */
+   private void runChangeScenarios(final EMoflonDiagramTextProvider diagramTextProvider, final TGGRule originalRule, final String pathToResource,
+         final String objectId, final int objectSize) throws IOException
+   {
+      final TGGRule tggRule = createWorkingCopy(originalRule);
+      try
+      {
+         this.changeScenarioEngine.run(diagramTextProvider, tggRule, pathToResource, objectId, objectSize);
+      } finally
+      {
+         releaseWorkingCopy(tggRule);
+      }
    }
 
-   private static TGGRule createDeepCopy(final TGGRule originalRule)
+   /**
+    * Copies the given rule into a transient resource so that the changes of RQ2 do not affect the original model
+    */
+   private TGGRule createWorkingCopy(final TGGRule originalRule)
    {
       final TGGRule tggRule = EcoreUtil.copy(originalRule);
-      final ResourceSet resourceSet = eMoflonEMFUtil.createDefaultResourceSet();
-      Resource resource = resourceSet.createResource(URI.createFileURI("C:\\tmp\\tmpResourceSet.xmi"));
+      final Resource resource = this.workingCopyResourceSet.createResource(URI.createURI(WORKING_COPY_URI));
       resource.getContents().add(tggRule);
       return tggRule;
    }
 
-   // Cannot use List#addAll + Arrays.toList
-   private void appendValuesOfStatisticsToColumns(List<Object> columns, DescriptiveStatistics statistics)
+   private void releaseWorkingCopy(final TGGRule tggRule)
    {
-      for (final Double value : statistics.getValues())
-      {
-         columns.add(formatTimeInMillis(value));
-      }
+      final Resource resource = tggRule.eResource();
+      resource.unload();
+      this.workingCopyResourceSet.getResources().remove(resource);
    }
 
-   private static double median(DescriptiveStatistics statistics)
+   /**
+    * Forwards the given wall-clock times to the live statistics and to the latency summary of the whole evaluation
+    */
+   private void recordLatencies(final String type, final String mode, final int objectSize, final double[] wallTimesInNanos)
    {
-      return statistics.getPercentile(50);
+      this.liveStatistics.recordLatencies(type, mode, wallTimesInNanos);
+      this.latencySummary.record(type, mode, objectSize, wallTimesInNanos);
    }
 
-   private void undoModifications(final EObject element, final EMoflonDiagramTextProvider diagramTextProvider,
-         final EvaluationTGGRuleModifier evaluationTGGRuleModifier, final TGGRule tggRule, List<ObjectVariable> addedObjectVariables,
-         ObjectVariable renamedObjectVariable, List<ObjectVariable> removedObjectVariables)
+   /**
+    * Appends the first values of the given statistics, one per repetition column. In adaptive mode, additional
+    * repetitions only contribute to the aggregated columns.
+    */
+   private void appendValuesOfStatisticsToColumns(ResultRow row, DescriptiveStatistics statistics)
    {
-      // Undo changes
-      evaluationTGGRuleModifier.undoRemove(tggRule, removedObjectVariables);
-      evaluationTGGRuleModifier.undoRename(renamedObjectVariable);
-      evaluationTGGRuleModifier.undoAdd(addedObjectVariables);
-      diagramTextProvider.clearCache();
-      diagramTextProvider.modelToDot(element); // Batch
+      final double[] values = statistics.getValues();
+      for (int i = 0; i < this.repetitionPolicy.getMinimumRepetitions(); ++i)
+      {
+         row.addMillis(values[i]);
+      }
    }
 
-   private EMoflonDiagramTextProvider determineDiagramTextProvider(final EObject element)
+   /**
+    * Appends the given value (rounded), e.g., a number of nanoseconds or bytes, or NA if no value is available
+    */
+   private static void appendRounded(final ResultRow row, final double value)
    {
-      final EMoflonDiagramTextProvider diagramTextProvider;
+      if (Double.isNaN(value))
+         row.addMissing();
+      else
+         row.addInteger(Math.round(value));
+   }
 
-      if (sdmDiagramTextProvider.isElementValidInput(element))
-      {
-         diagramTextProvider = sdmDiagramTextProvider;
-      } else if (tggRuleDiagramTextProvider.isElementValidInput(element))
-      {
-         diagramTextProvider = tggRuleDiagramTextProvider;
-      } else if (storyPatternDiagramTextProvider.isElementValidInput(element))
-      {
-         diagramTextProvider = storyPatternDiagramTextProvider;
-      } else if (precendenceGraphTextProvider.isElementValidInput(element))
-      {
-         diagramTextProvider = precendenceGraphTextProvider;
-      } else if (tripleMatchTextProvider.isElementValidInput(element))
-      {
-         diagramTextProvider = tripleMatchTextProvider;
-      } else
-      {
-         diagramTextProvider = null;
-      }
-      return diagramTextProvider;
+   /**
+    * Appends the mean and median of the allocated bytes and the total number and time of garbage collections
+    */
+   private static void appendMemoryStatistics(final ResultRow row, final TimingSeries timingSeries)
+   {
+      appendRounded(row, timingSeries.getAllocatedBytes().getMean());
+      appendRounded(row, median(timingSeries.getAllocatedBytes()));
+      appendRounded(row, timingSeries.getGcCount().getSum());
+      appendRounded(row, timingSeries.getGcTimeInMillis().getSum());
    }
 
-   private String determineTypeOfModel(final EObject element)
+   private static double median(DescriptiveStatistics statistics)
    {
-      final String type;
-      if (sdmDiagramTextProvider.isElementValidInput(element))
-      {
-         type = SDM_TYPE;
-      } else if (tggRuleDiagramTextProvider.isElementValidInput(element))
-      {
-         type = TGG_RULE_TYPE;
-      } else if (storyPatternDiagramTextProvider.isElementValidInput(element))
-      {
-         type = STORY_PATTERN_TYPE;
-      } else if (precendenceGraphTextProvider.isElementValidInput(element))
-      {
-         type = PRECEDENCE_GRAPH_TYPE;
-      } else if (tripleMatchTextProvider.isElementValidInput(element))
-      {
-         type = TRIPLE_MATCH_TYPE;
-      } else
-      {
-         type = null;
-      }
-      return type;
+      return statistics.getPercentile(50);
    }
 
-   private static String joinWithCsvSeparator(final List<? extends Object> columns)
+   /**
+    * Reverts all changes that the given recorder has recorded and propagates the reversal incrementally. If the resulting
+    * DOT differs from the DOT before the changes, the provider is synchronized from scratch.
+    * 
+    * @return whether the DOT after the incremental undo matches the DOT before the changes
+    */
+   private boolean undoModifications(final EMoflonDiagramTextProvider diagramTextProvider, final TGGRule tggRule, final ChangeRecorder changeRecorder,
+         final String dotBeforeChanges, final TimingSeries undoStatistics)
    {
-      return columns.stream().map(Object::toString).collect(Collectors.joining(CSV_SEP));
+      changeRecorder.endRecording().apply();
+      changeRecorder.dispose();
+
+      final Measurement undoIncremental = this.timer.measure(diagramTextProvider, tggRule); // Incremental
+      undoStatistics.add(undoIncremental);
+      if (Objects.equals(dotBeforeChanges, undoIncremental.getDot()))
+         return true;
+
+      logger.warn("DOT after incremental undo differs from DOT before the changes for " + eMoflonEMFUtil.getIdentifier(tggRule));
+      diagramTextProvider.clearCache();
+      diagramTextProvider.modelToDot(tggRule); // Batch
+      return false;
    }
 
-   private static String formatTimeInMillis(double timeInMillis)
+   private EMoflonDiagramTextProvider determineDiagramTextProvider(final EObject element)
    {
-      return String.format(Locale.US, "%.2f", timeInMillis);
+      return providerDispatch.getDiagramTextProvider(element);
    }
 
-   private static String calculateNormalizedIdentifier(final EObject element)
+   /**
+    * Returns the type of model that the given element represents or null if none of the diagram text providers can
+    * handle the element
+    */
+   String determineTypeOfModel(final EObject element)
    {
-      return IdentifierProvider.calculateIdentifier(element).replaceAll("\\s+", "_").replaceAll(CSV_SEP, "_").replaceAll("'", "");
+      return providerDispatch.getType(element);
    }
 
-   private void createRootFolderIfNecessary()
+   /**
+    * Registers the diagram text providers in the order in which they are tried
+    */
+   private ProviderDispatch createProviderDispatch()
    {
-      if (!this.rootFolder.exists())
-      {
-         this.rootFolder.mkdirs();
-      }
+      final ProviderDispatch dispatch = new ProviderDispatch();
+      dispatch.register(SDM_TYPE, sdmDiagramTextProvider);
+      dispatch.register(TGG_RULE_TYPE, tggRuleDiagramTextProvider);
+      dispatch.register(STORY_PATTERN_TYPE, storyPatternDiagramTextProvider);
+      dispatch.register(PRECEDENCE_GRAPH_TYPE, precendenceGraphTextProvider);
+      dispatch.register(TRIPLE_MATCH_TYPE, tripleMatchTextProvider);
+      return dispatch;
    }
 
-   private static File determineRootFolder()
+   private static String formatTimeInMillis(double timeInMillis)
    {
-      // Use for instance: -DINCR_VIZ_ROOT_FOLDER=C:\Users\rkluge\tmp
-      String rootFolderEnvVar = System.getProperty("INCR_VIZ_ROOT_FOLDER");
-      if (rootFolderEnvVar != null)
-      {
-         return new File(rootFolderEnvVar);
-      } else
-      {
-         return new File("C:/tmp/");
-      }
+      return ResultRow.formatTimeInMillis(timeInMillis);
    }
 
-   private void addTitlesIfNecessary() throws IOException
+   private String calculateNormalizedIdentifier(final EObject element)
    {
-      if (!targetFile.exists())
-      {
-         FileUtils.writeLines(targetFile, Arrays.asList(joinWithCsvSeparator(this.headerOfResultsFile)), true);
-      }
+      return identifierProvider.calculateNormalizedIdentifier(element);
    }
 
-   private List<String> getHeaderOfResultsFile()
+   private ResultsSchema getSchemaOfResultsFile()
    {
-      final List<String> header = new ArrayList<>();
-      header.addAll(getHeaderForGeneralInformation());
-      header.addAll(getHeaderForRQ1());
+      final ResultsSchema schema = new ResultsSchema();
+      addColumnsForGeneralInformation(schema);
+      addColumnsForRQ1(schema);
 
-      this.lengthOfHeaderWithRQ1 = header.size();
+      this.lengthOfHeaderWithRQ1 = schema.size();
 
-      header.addAll(getHeaderForRQ2());
-      return header;
+      addColumnsForRQ2(schema);
+      return schema;
    }
 
-   private List<String> getHeaderForGeneralInformation()
+   private void addColumnsForGeneralInformation(final ResultsSchema schema)
    {
-      return Arrays.asList("datetime", "project", "type", "id", "objectNodeCount", "objectEdgeCount", "objectSize");
+      Arrays.asList("datetime", "project", "type", "id").forEach(name -> schema.add(name, ColumnType.TEXT));
+      Arrays.asList("objectNodeCount", "objectEdgeCount", "objectSize", "objectContainmentDepth").forEach(name -> schema.add(name, ColumnType.INTEGER));
    }
 
-   private List<String> getHeaderForRQ2()
+   private void addColumnsForRQ2(final ResultsSchema schema)
    {
-      final List<String> headerForRQ2 = new ArrayList<>();
       final String rqPrefix = "RQ2";
-      for (final String changeType : Arrays.asList("_C1_add", "_C2_rename", "_C3_remove", "_C4_sequence"))
+      for (final String changeType : CHANGE_TYPES)
       {
          final String prefix = rqPrefix + changeType;
-         IntStream.rangeClosed(1, repetitionCountOfIncrementalTransformation).forEach(i -> headerForRQ2.add(prefix + "_timeIncr_" + i));
-         IntStream.rangeClosed(1, repetitionCountOfIncrementalTransformation).forEach(i -> headerForRQ2.add(prefix + "_timeBatch_" + i));
-         headerForRQ2.add(prefix + "_timeIncr_mean");
-         headerForRQ2.add(prefix + "_timeIncr_median");
-         headerForRQ2.add(prefix + "_timeBatch_mean");
-         headerForRQ2.add(prefix + "_timeBatch_median");
-         headerForRQ2.add(prefix + "_timeIncrOverBatch_mean");
-         headerForRQ2.add(prefix + "_timeIncrOverBatch_median");
+         IntStream.rangeClosed(1, repetitionCountOfIncrementalTransformation).forEach(i -> schema.add(prefix + "_timeIncr_" + i, ColumnType.MILLIS));
+         IntStream.rangeClosed(1, repetitionCountOfIncrementalTransformation).forEach(i -> schema.add(prefix + "_timeBatch_" + i, ColumnType.MILLIS));
+         schema.add(prefix + "_timeIncr_mean", ColumnType.MILLIS);
+         schema.add(prefix + "_timeIncr_median", ColumnType.MILLIS);
+         schema.add(prefix + "_timeBatch_mean", ColumnType.MILLIS);
+         schema.add(prefix + "_timeBatch_median", ColumnType.MILLIS);
+         schema.add(prefix + "_timeIncrOverBatch_mean", ColumnType.RATIO);
+         schema.add(prefix + "_timeIncrOverBatch_median", ColumnType.RATIO);
       }
       // Comparison between separate changes and change sequence (only for incremental mode)
-      headerForRQ2.add(rqPrefix + "_timeSumOfSeparateChangesIncr_mean");
-      headerForRQ2.add(rqPrefix + "_timeSumOfSeparateChangesIncr_median");
-      headerForRQ2.add(rqPrefix + "_timeSequenceChangeOverSeparateChangesIncr_mean");
-      headerForRQ2.add(rqPrefix + "_timeSequenceChangeOverSeparateChangesIncr_median");
-      return headerForRQ2;
+      schema.add(rqPrefix + "_timeSumOfSeparateChangesIncr_mean", ColumnType.MILLIS);
+      schema.add(rqPrefix + "_timeSumOfSeparateChangesIncr_median", ColumnType.MILLIS);
+      schema.add(rqPrefix + "_timeSequenceChangeOverSeparateChangesIncr_mean", ColumnType.RATIO);
+      schema.add(rqPrefix + "_timeSequenceChangeOverSeparateChangesIncr_median", ColumnType.RATIO);
+
+      // Measured by the harness
+      for (final String changeType : CHANGE_TYPES)
+      {
+         final String prefix = rqPrefix + changeType;
+         IntStream.rangeClosed(1, repetitionCountOfIncrementalTransformation).forEach(i -> schema.add(prefix + "_wallNanosIncr_" + i, ColumnType.INTEGER));
+         schema.add(prefix + "_wallNanosIncr_mean", ColumnType.INTEGER);
+         schema.add(prefix + "_wallNanosIncr_median", ColumnType.INTEGER);
+         schema.add(prefix + "_wallNanosBatch_mean", ColumnType.INTEGER);
+         schema.add(prefix + "_wallNanosBatch_median", ColumnType.INTEGER);
+         schema.add(prefix + "_cpuNanosIncr_median", ColumnType.INTEGER);
+         schema.add(prefix + "_cpuNanosBatch_median", ColumnType.INTEGER);
+         schema.add(prefix + "_wallNanosIncrOverBatch_mean", ColumnType.RATIO);
+         schema.add(prefix + "_wallNanosIncrOverBatch_median", ColumnType.RATIO);
+         addColumnsForMemoryStatistics(schema, prefix, "Incr");
+         addColumnsForMemoryStatistics(schema, prefix, "Batch");
+      }
+
+      // Incremental undo of the separate changes and of the change sequence
+      for (final String undoType : Arrays.asList("_undoSeparateChanges", "_undoSequence"))
+      {
+         final String prefix = rqPrefix + undoType;
+         schema.add(prefix + "_timeIncr_mean", ColumnType.MILLIS);
+         schema.add(prefix + "_timeIncr_median", ColumnType.MILLIS);
+         schema.add(prefix + "_wallNanosIncr_mean", ColumnType.INTEGER);
+         schema.add(prefix + "_wallNanosIncr_median", ColumnType.INTEGER);
+      }
+      schema.add(rqPrefix + "_undo_dotMismatches", ColumnType.INTEGER);
+      schema.add(rqPrefix + "_repetitions", ColumnType.INTEGER);
    }
 
-   private List<String> getHeaderForRQ1()
+   private void addColumnsForRQ1(final ResultsSchema schema)
    {
-      final List<String> headerForRQ1 = new ArrayList<>();
       final String rqPrefix = "RQ1";
-      IntStream.rangeClosed(1, repetitionCountOfBatchTransformation).forEach(i -> headerForRQ1.add(rqPrefix + "_timeBatch_" + i));
-      headerForRQ1.add(rqPrefix + "_timeBatch_mean");
-      headerForRQ1.add(rqPrefix + "_timeBatch_median");
-      return headerForRQ1;
+      IntStream.rangeClosed(1, repetitionCountOfBatchTransformation).forEach(i -> schema.add(rqPrefix + "_timeBatch_" + i, ColumnType.MILLIS));
+      schema.add(rqPrefix + "_timeBatch_mean", ColumnType.MILLIS);
+      schema.add(rqPrefix + "_timeBatch_median", ColumnType.MILLIS);
+
+      // Measured by the harness
+      IntStream.rangeClosed(1, repetitionCountOfBatchTransformation).forEach(i -> schema.add(rqPrefix + "_wallNanosBatch_" + i, ColumnType.INTEGER));
+      schema.add(rqPrefix + "_wallNanosBatch_mean", ColumnType.INTEGER);
+      schema.add(rqPrefix + "_wallNanosBatch_median", ColumnType.INTEGER);
+      schema.add(rqPrefix + "_cpuNanosBatch_mean", ColumnType.INTEGER);
+      schema.add(rqPrefix + "_cpuNanosBatch_median", ColumnType.INTEGER);
+      addColumnsForMemoryStatistics(schema, rqPrefix, "Batch");
+      schema.add(rqPrefix + "_repetitions", ColumnType.INTEGER);
+   }
+
+   /**
+    * Adds the columns that are filled by {@link #appendMemoryStatistics(ResultRow, TimingSeries)}
+    */
+   private static void addColumnsForMemoryStatistics(final ResultsSchema schema, final String prefix, final String mode)
+   {
+      schema.add(prefix + "_allocBytes" + mode + "_mean", ColumnType.INTEGER);
+      schema.add(prefix + "_allocBytes" + mode + "_median", ColumnType.INTEGER);
+      schema.add(prefix + "_gcCount" + mode + "_sum", ColumnType.INTEGER);
+      schema.add(prefix + "_gcMillis" + mode + "_sum", ColumnType.INTEGER);
    }
 
    private int getLengthOfHeaderForRQ1andRQ2()
    {
-      return this.headerOfResultsFile.size();
+      return this.schemaOfResultsFile.size();
    }
 
    private int getLengthOfHeaderForRQ1Only()
@@ -528,12 +841,134 @@ public class Visualizer
 
    public void resetCounter()
    {
-      this.visualizedItemCounter = 0;
+      this.visualizedItemCounter.set(0);
    }
 
    public int getVisualizedItemCounter()
    {
-      return this.visualizedItemCounter;
+      return this.visualizedItemCounter.get();
+   }
+
+   /**
+    * Clears the caches of all diagram text providers and the cached IDs so that they no longer reference any model elements
+    */
+   public void clearCaches()
+   {
+      for (final EMoflonDiagramTextProvider diagramTextProvider : Arrays.asList(sdmDiagramTextProvider, tggRuleDiagramTextProvider,
+            storyPatternDiagramTextProvider, precendenceGraphTextProvider, tripleMatchTextProvider))
+      {
+         diagramTextProvider.clearCache();
+      }
+      identifierProvider.clear();
+   }
+
+   /**
+    * Appends a results row that has been measured in a previous run to all results files except for the results file of
+    * this run
+    */
+   void appendCachedResult(final String row)
+   {
+      appendToResults(this.resultsSinksOfCarriedRows, ResultRow.parseCsv(row, this.schemaOfResultsFile));
+   }
+
+   /**
+    * Empties the file that receives the rows of the current run (see {@link #RUN_RESULTS_FILE_NAME})
+    */
+   public void startRun() throws IOException
+   {
+      this.runResultsFile.close();
+      Files.deleteIfExists(this.runResultsFile.getTargetFile().toPath());
+   }
+
+   /**
+    * Returns the file that receives the rows of the current run
+    */
+   File getRunResultsFile()
+   {
+      return this.runResultsFile.getTargetFile();
+   }
+
+   /**
+    * Writes all pending rows to the results file and closes it. Writes the latency percentiles of all runs since the
+    * previous invocation to incrviz_latency_summary.csv.
+    */
+   public void closeResults() throws IOException
+   {
+      for (final ResultsSink resultsSink : this.resultsSinks)
+      {
+         resultsSink.close();
+      }
+      this.modelLoader.close();
+      if (!this.latencySummary.isEmpty())
+      {
+         this.latencySummary.writeAndClear(new File(rootFolder, "incrviz_latency_summary.csv"));
+      }
+      if (this.changeScenarioEngine != null)
+      {
+         this.changeScenarioEngine.closeResults();
+      }
+   }
+
+   /**
+    * Returns a signature of the layout of the results rows, which changes whenever the columns change
+    */
+   String getResultsSignature()
+   {
+      return Integer.toHexString(this.schemaOfResultsFile.hashCode());
+   }
+
+   /**
+    * Returns the layout of the results rows
+    */
+   ResultsSchema getSchema()
+   {
+      return this.schemaOfResultsFile;
+   }
+
+   /**
+    * Returns the analysis that tells which parts of a model can be skipped when searching for candidates
+    */
+   ContainmentReachability getContainmentReachability()
+   {
+      return this.containmentReachability;
+   }
+
+   /**
+    * Returns the sink that writes the results rows in the background or null if the rows are written by the measuring
+    * thread
+    */
+   AsynchronousResultsSink getAsynchronousResultsSink()
+   {
+      return this.resultsSinks.stream().filter(AsynchronousResultsSink.class::isInstance).map(AsynchronousResultsSink.class::cast).findFirst()
+            .orElse(null);
+   }
+
+   /**
+    * Returns the loader of the model files, which is shared by all workers
+    */
+   ModelLoader getModelLoader()
+   {
+      return this.modelLoader;
+   }
+
+   ResultCache getResultCache()
+   {
+      return this.resultCache;
+   }
+
+   /**
+    * Sets the cache that receives all rows that are written from now on (may be null).
+    * 
+    * Workers that are created afterwards share this cache.
+    */
+   void setResultCache(final ResultCache resultCache)
+   {
+      this.resultCache = resultCache;
+   }
+
+   public File getRootFolder()
+   {
+      return this.rootFolder;
    }
 
    public boolean isInterestingCandidate(EObject eObject)